@@ -48,6 +48,11 @@ public class ClientAccessManager {
                 .map(seleniumClientManager::getClient);
     }
 
+    public synchronized Optional<ClientId> getClientId(StepOrder stepOrder) {
+        return reservationTracker.getReservation(stepOrder)
+                .map(ClientReservation::getClientId);
+    }
+
     public synchronized void makeReservationPlaceholder(ClientReservationRequest rq) {
         ClientReservationType type = rq.getReservationType();
         switch (type) {
@@ -88,7 +93,10 @@ public class ClientAccessManager {
         }
     }
 
-    public synchronized void activateReservation(ClientReservationRequest rq) {
+    /**
+     * @return the client of the activated reservation so that the caller does not need to look it up again
+     */
+    public synchronized Optional<ClientId> activateReservation(ClientReservationRequest rq) {
         switch (rq.getReservationType()) {
             case READING:
             case MODIFYING:
@@ -122,6 +130,7 @@ public class ClientAccessManager {
             default:
                 log.error("Unhandled reservationType {}", rq.getReservationType());
         }
+        return getClientId(rq.getStep());
     }
 
     public synchronized void finishReservation(StepOrder step) {
@@ -150,6 +159,41 @@ public class ClientAccessManager {
         }
     }
 
+    /**
+     * Does not lock - the reserved flags of the clients are read one by one so the count can be off by the reservations changing at the moment.
+     * Callers re-check the count whenever a client gets released
+     *
+     * @return the number of clients reserved by steps - each of them has a page loaded that is still being processed
+     */
+    public int reservedClientsCount() {
+        return seleniumClientManager.reservedClientsCount() + htmlUnitClientManager.reservedClientsCount();
+    }
+
+    /**
+     * Does not lock - restarting the client can take a while. Used when a step holding the client does not stop when it should,
+     * the still running execution then operates on the replaced client instance
+     */
+    public void restartClient(ClientId clientId) {
+        int clientNo = clientId.getClientNo();
+        ClientOperator<?> operator = clientId.getClientType().isSelenium()
+                ? seleniumClientManager.getClient(clientNo)
+                : htmlUnitClientManager.getClient(clientNo);
+        if (operator != null) {
+            log.info("Restarting client {}", clientId);
+            operator.restartDriverImmediately();
+        }
+    }
+
+    /**
+     * Releases all reservations including those of steps that are still executing - to be used only when the scraping is stopped
+     */
+    public synchronized void releaseAllReservations() {
+        reservationTracker.removeAllReservations();
+        seleniumClientManager.unreserveAllClients();
+        htmlUnitClientManager.unreserveAllClients();
+        log.debug("Released all client reservations");
+    }
+
     private void logActivatedReservation(ClientId clientId, Object client, StepOrder stepOrder) {
         log.debug("{}: Activated reservation for clientId {} client instance {}", stepOrder, clientId, client);
     }
@@ -23,12 +23,6 @@ import com.github.scrape.flow.scraping.ClientType;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
-import java.util.SortedMap;
-import java.util.stream.Collectors;
-
 @RequiredArgsConstructor
 public class ClientAccessOrderChecker {
 
@@ -41,33 +35,10 @@ public class ClientAccessOrderChecker {
         checkInitialisation();
         // ideally we should also filter away steps that are executing now, but it's ok ...
         // ... the wort that can happen is that a client will not seem to be available for a while
-        SortedMap<StepOrder, ActiveStepsTracker.TrackedStepOrder> precedingSteps = activeStepsTracker.getPrecedingSteps(stepExecToCheck);
-        List<StepOrder> precedingStepsWithoutActiveParents = getStepsWithoutActiveParents(precedingSteps.values());
-        int remainingDepth = stepHierarchyRepository.getRemainingLoadingStepsDepthMax(precedingStepsWithoutActiveParents, clientType);
+        int remainingDepth = activeStepsTracker.getRemainingLoadingDepthMaxOfPrecedingSteps(stepExecToCheck, clientType);
         return remainingClients > remainingDepth;
     }
 
-    // we want "top-most" steps only
-    private List<StepOrder> getStepsWithoutActiveParents(Collection<ActiveStepsTracker.TrackedStepOrder> precedingSteps) {
-        return precedingSteps.stream()
-                .filter(this::isTopMost)
-                .map(ActiveStepsTracker.TrackedStepOrder::getHierarchyOrder)
-                .collect(Collectors.toList());
-    }
-
-    private boolean isTopMost(ActiveStepsTracker.TrackedStepOrder s) {
-        Optional<StepOrder> parent = s.getStepOrder().getParent();
-        if (parent.isPresent()) {
-            if (activeStepsTracker.isActive(parent.get())) {
-                return false; // if parent is active as well, do not include this step
-            } else {
-                return true;
-            }
-        } else {
-            return true;
-        }
-    }
-
     private void checkInitialisation() {
         if (stepHierarchyRepository == null) {
             throw new IllegalStateException("stepHierarchyRepository has not been initialised!");
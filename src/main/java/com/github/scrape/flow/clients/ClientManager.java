@@ -27,4 +27,8 @@ public interface ClientManager<T> {
     int existingClientsCount();
 
     int maxUnreservedClients();
+
+    int reservedClientsCount();
+
+    void unreserveAllClients();
 }
@@ -17,15 +17,12 @@
 package com.github.scrape.flow.clients;
 
 import com.github.scrape.flow.execution.StepOrder;
+import com.github.scrape.flow.execution.StepOrderIndex;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.collections4.Trie;
-import org.apache.commons.collections4.trie.PatriciaTrie;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.util.List;
 import java.util.Optional;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,18 +30,18 @@ import java.util.stream.Stream;
 @NotThreadSafe
 public class ClientReservationTracker {
 
-    private final Trie<String, ClientReservation> reservationsTrie = new PatriciaTrie<>();
+    private final StepOrderIndex<ClientReservation> reservations = new StepOrderIndex<>();
 
     void addReservation(ClientReservation reservation) {
-        reservationsTrie.put(getKey(reservation.getReservingStep()), reservation);
+        reservations.put(reservation.getReservingStep(), reservation);
     }
 
-    public SortedMap<String, ClientReservation> getReservationsSubTree(StepOrder parent) {
-        return new TreeMap<>(reservationsTrie.prefixMap(getKey(parent)));
+    public List<ClientReservation> getReservationsSubTree(StepOrder parent) {
+        return reservations.getSubtreeValues(parent);
     }
 
     public Optional<ClientReservation> getReservation(StepOrder step) {
-        return Optional.ofNullable(reservationsTrie.get(getKey(step)));
+        return Optional.ofNullable(reservations.get(step));
     }
 
     public void addReadingReservation(StepOrder step) {
@@ -63,7 +60,7 @@ public class ClientReservationTracker {
     private void addReservation(StepOrder step, ClientReservationType reservationType) {
         Optional<StepOrder> parent = step.getParent();
         if (parent.isPresent()) {
-            ClientId parentClientId = reservationsTrie.get(getKey(parent.get())).getClientId();
+            ClientId parentClientId = reservations.get(parent.get()).getClientId();
             ClientReservation res = ClientReservation.newPlaceholderReservation(parentClientId, step, reservationType);
             addReservation(res);
         } else {
@@ -72,7 +69,7 @@ public class ClientReservationTracker {
     }
 
     public void finishReservation(StepOrder step) {
-        ClientReservation res = reservationsTrie.get(getKey(step));
+        ClientReservation res = reservations.get(step);
         res.setFinished(true);
     }
 
@@ -81,7 +78,7 @@ public class ClientReservationTracker {
     }
 
     public void removeAllReservationsSharingSameClientAs(ClientReservation reservation) {
-        getReservationsSharingSameClientAs(reservation.getReservingStep()).forEach(r -> reservationsTrie.remove(getKey(r.getReservingStep())));
+        getReservationsSharingSameClientAs(reservation.getReservingStep()).forEach(r -> reservations.remove(r.getReservingStep()));
     }
 
     public boolean canActivateReadingReservationOf(StepOrder step) {
@@ -99,25 +96,29 @@ public class ClientReservationTracker {
     }
 
     public void activateReservation(StepOrder step) {
-        ClientReservation res = reservationsTrie.get(getKey(step));
+        ClientReservation res = reservations.get(step);
         res.setPlaceholder(false);
     }
 
     public void activateReservation(StepOrder step, ClientId clientId) {
-        ClientReservation res = reservationsTrie.get(getKey(step));
+        ClientReservation res = reservations.get(step);
         res.setPlaceholder(false);
         res.setClientId(clientId);
     }
 
 
+    public void removeAllReservations() {
+        reservations.clear();
+    }
+
     // only relevant for read or modify that know their client beforehand?
     List<ClientReservation> getReservationsSharingSameClientAs(StepOrder step) {
-        ClientReservation res = reservationsTrie.get(getKey(step));
+        ClientReservation res = reservations.get(step);
         ClientReservation lastShared = res;
         for (int i = 0; i < step.size(); i++) {
             Optional<StepOrder> parent = step.getParent();
             if (parent.isPresent()) {
-                ClientReservation parentRes = reservationsTrie.get(getKey(parent.get()));
+                ClientReservation parentRes = reservations.get(parent.get());
                 if (parentRes != null && res.sharesClientWith(parentRes)) {
                     lastShared = parentRes;
                 } else {
@@ -128,14 +129,10 @@ public class ClientReservationTracker {
                 break;
             }
         }
-        return reservationsTrie.prefixMap(getKey(lastShared.getReservingStep())).values()
+        return reservations.getSubtreeValues(lastShared.getReservingStep())
                 .stream()
                 .filter(r -> r.sharesClientWith(res))
                 .collect(Collectors.toList());
     }
 
-    private String getKey(StepOrder step) {
-        return step.asString();
-    }
-
 }
@@ -53,6 +53,16 @@ public class HtmlUnitClientManager implements ClientManager<WebClient> {
         clientOperators.get(clientNo).unReserve();
     }
 
+    @Override
+    public int reservedClientsCount() {
+        return (int) clientOperators.values().stream().filter(ClientOperator::isReserved).count();
+    }
+
+    @Override
+    public void unreserveAllClients() {
+        clientOperators.values().forEach(ClientOperator::unReserve);
+    }
+
     private Optional<ClientOperator<WebClient>> createNewDriverIfNotAtMaxLimit() {
         if (clientOperators.size() < clientFactory.maxClients()) {
             int nextClientNo = clientOperators.size() + 1;
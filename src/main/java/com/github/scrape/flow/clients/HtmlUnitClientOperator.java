@@ -22,11 +22,13 @@ import com.github.scrape.flow.scraping.ClientType;
 public class HtmlUnitClientOperator implements ClientOperator<WebClient> {
 
     private final int clientNo;
-    private final WebClient webClient;
+    private final HtmlUnitClientFactory driversFactory;
+    private volatile WebClient webClient;
     private volatile boolean reserved = false;
 
     public HtmlUnitClientOperator(int clientNo, HtmlUnitClientFactory driversFactory) {
         this.clientNo = clientNo;
+        this.driversFactory = driversFactory;
         this.webClient = driversFactory.startDriver();
     }
 
@@ -82,9 +84,14 @@ public class HtmlUnitClientOperator implements ClientOperator<WebClient> {
         // not needed
     }
 
+    /**
+     * Replaces the client e.g. when an execution using it does not stop - that one keeps the closed client
+     */
     @Override
     public void restartDriverImmediately() {
-        // not needed
+        WebClient previous = webClient;
+        webClient = driversFactory.startDriver();
+        previous.close();
     }
 
     @Override
@@ -56,6 +56,16 @@ public class SeleniumClientManager implements ClientManager<WebDriver> {
         clientOperators.get(clientNo).unReserve();
     }
 
+    @Override
+    public int reservedClientsCount() {
+        return (int) clientOperators.values().stream().filter(ClientOperator::isReserved).count();
+    }
+
+    @Override
+    public void unreserveAllClients() {
+        clientOperators.values().forEach(ClientOperator::unReserve);
+    }
+
     private Optional<ClientOperator<WebDriver>> createNewDriverIfNotAtMaxLimit() {
         if (clientOperators.size() < clientFactory.maxClients()) {
             int nextClientNo = clientOperators.size() + 1;
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.data.publishing;
+
+import com.github.scrape.flow.execution.LoadingBackpressure;
+import com.github.scrape.flow.scraping.Options;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emits published models to the subscribers of {@link Flux}es of model classes.
+ * <p>
+ * Each subscriber has its own buffer which is drained only as far as the subscriber requests more data. Loading of new pages
+ * is paused while the buffer of any subscriber holds as many models as the publishing queue capacity allows.
+ * Newly published models are emitted from a separate thread so that subscribers do not hold up the scraping
+ */
+@Log4j2
+class ModelSubscriptions implements LoadingBackpressure {
+
+    private final Options options;
+    private final Map<Class<?>, List<ModelSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final List<Runnable> resumeListeners = new CopyOnWriteArrayList<>();
+    // subscriptions with a full buffer
+    private final AtomicInteger saturatedCount = new AtomicInteger(0);
+    // models buffered but not yet emitted to their subscriber
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    private volatile boolean completed = false;
+
+    ModelSubscriptions(Options options) {
+        this.options = options;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    <T> Flux<T> flux(Class<T> modelClass) {
+        return Flux.<T>create(sink -> {
+            ModelSubscription subscription = new ModelSubscription(modelClass, (FluxSink) sink);
+            subscriptions.computeIfAbsent(modelClass, k -> new CopyOnWriteArrayList<>()).add(subscription);
+            sink.onRequest(n -> subscription.drain());
+            sink.onDispose(subscription::dispose);
+            if (completed) {
+                subscription.complete();
+            }
+        });
+    }
+
+    boolean hasSubscribers(Class<?> modelClass) {
+        List<ModelSubscription> list = subscriptions.get(modelClass);
+        return list != null && !list.isEmpty();
+    }
+
+    void publish(Class<?> modelClass, Object model) {
+        List<ModelSubscription> list = subscriptions.get(modelClass);
+        if (list != null) {
+            for (ModelSubscription subscription : list) {
+                subscription.offer(model);
+            }
+        }
+    }
+
+    /**
+     * Subscribers complete once they have received all the models buffered for them
+     */
+    void complete() {
+        completed = true;
+        subscriptions.values().forEach(list -> list.forEach(ModelSubscription::complete));
+    }
+
+    /**
+     * @return true if all published models were emitted to the subscribers within the given timeout
+     */
+    boolean awaitDelivered(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pendingCount.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isLoadingPaused() {
+        return saturatedCount.get() > 0;
+    }
+
+    @Override
+    public void addResumeListener(Runnable listener) {
+        resumeListeners.add(listener);
+    }
+
+    private void onSaturationChanged(boolean saturated) {
+        if (saturated) {
+            saturatedCount.incrementAndGet();
+        } else if (saturatedCount.decrementAndGet() == 0) {
+            resumeListeners.forEach(Runnable::run);
+        }
+    }
+
+
+    private class ModelSubscription {
+
+        private final Class<?> modelClass;
+        private final FluxSink<Object> sink;
+        private final Queue<Object> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger bufferedCount = new AtomicInteger(0);
+        private final AtomicInteger drainRequests = new AtomicInteger(0);
+        private final AtomicBoolean saturated = new AtomicBoolean(false);
+        private volatile boolean done = false;
+
+        ModelSubscription(Class<?> modelClass, FluxSink<Object> sink) {
+            this.modelClass = modelClass;
+            this.sink = sink;
+        }
+
+        void offer(Object model) {
+            buffer.offer(model);
+            bufferedCount.incrementAndGet();
+            pendingCount.incrementAndGet();
+            updateSaturation();
+            Schedulers.boundedElastic().schedule(this::drain);
+        }
+
+        void complete() {
+            done = true;
+            drain();
+        }
+
+        /**
+         * Emits buffered models up to the requested amount. Calls made while another thread is draining only request another round from it
+         */
+        void drain() {
+            if (drainRequests.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (sink.isCancelled()) {
+                    dropBuffered();
+                } else {
+                    emitRequested();
+                    if (done && buffer.isEmpty()) {
+                        sink.complete();
+                    }
+                }
+                updateSaturation();
+                missed = drainRequests.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        void dispose() {
+            List<ModelSubscription> list = subscriptions.get(modelClass);
+            if (list != null) {
+                list.remove(this);
+            }
+            drain();
+        }
+
+        private void emitRequested() {
+            while (sink.requestedFromDownstream() > 0) {
+                Object model = buffer.poll();
+                if (model == null) {
+                    return;
+                }
+                bufferedCount.decrementAndGet();
+                pendingCount.decrementAndGet();
+                sink.next(model);
+            }
+        }
+
+        private void dropBuffered() {
+            int dropped = 0;
+            while (buffer.poll() != null) {
+                dropped++;
+            }
+            if (dropped > 0) {
+                bufferedCount.addAndGet(-dropped);
+                pendingCount.addAndGet(-dropped);
+                log.debug("Dropped {} buffered models of type '{}' of a cancelled subscriber", dropped, modelClass.getSimpleName());
+            }
+        }
+
+        private void updateSaturation() {
+            boolean full = bufferedCount.get() >= options.getPublishingQueueCapacity();
+            if (saturated.compareAndSet(!full, full)) {
+                onSaturationChanged(full);
+            }
+        }
+    }
+
+}
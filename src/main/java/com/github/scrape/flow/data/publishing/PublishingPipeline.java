@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.data.publishing;
+
+import com.github.scrape.flow.execution.LoadingBackpressure;
+import com.github.scrape.flow.scraping.Options;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers published models to listeners on a dedicated thread pool so that slow listeners do not hold up the scraping.
+ * <p>
+ * Each listener has its own hand-off queue drained by one pool thread at a time, so every listener receives its data
+ * in the order in which it was published. Publishing never blocks - loading of new pages is paused instead
+ * while the queue of any listener holds as many models as the publishing queue capacity allows.
+ */
+@Log4j2
+class PublishingPipeline implements LoadingBackpressure {
+
+    private final Options options;
+    private final Map<ScrapedDataListener<Object>, ListenerWorker> workers = new ConcurrentHashMap<>();
+    // models handed off but not yet delivered to their listener
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    private final List<Runnable> resumeListeners = new CopyOnWriteArrayList<>();
+    // listeners with a full queue
+    private final AtomicInteger saturatedCount = new AtomicInteger(0);
+    private volatile Scheduler scheduler;
+
+    PublishingPipeline(Options options) {
+        this.options = options;
+    }
+
+    void publish(ScrapedDataListener<Object> listener, Object model) {
+        pendingCount.incrementAndGet();
+        workers.computeIfAbsent(listener, ListenerWorker::new).enqueue(model);
+    }
+
+    /**
+     * @return true if all published models were delivered within the given timeout
+     */
+    boolean awaitDelivered(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pendingCount.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isLoadingPaused() {
+        return saturatedCount.get() > 0;
+    }
+
+    @Override
+    public void addResumeListener(Runnable listener) {
+        resumeListeners.add(listener);
+    }
+
+    /**
+     * Releases the delivering threads. These get created anew if more data is published afterwards
+     */
+    synchronized void disposeScheduler() {
+        Scheduler disposed = scheduler;
+        if (disposed != null) {
+            scheduler = null;
+            disposed.dispose();
+        }
+    }
+
+    private void onSaturationChanged(boolean saturated) {
+        if (saturated) {
+            saturatedCount.incrementAndGet();
+        } else if (saturatedCount.decrementAndGet() == 0) {
+            resumeListeners.forEach(Runnable::run);
+        }
+    }
+
+    private Scheduler getScheduler() {
+        if (scheduler == null) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    scheduler = Schedulers.newParallel("publishing", options.getPublishingThreads(), true);
+                }
+            }
+        }
+        return scheduler;
+    }
+
+
+    private class ListenerWorker {
+
+        private final ScrapedDataListener<Object> listener;
+        private final BlockingQueue<QueuedModel> queue = new LinkedBlockingQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicBoolean saturated = new AtomicBoolean(false);
+
+        ListenerWorker(ScrapedDataListener<Object> listener) {
+            this.listener = listener;
+        }
+
+        void enqueue(Object model) {
+            queue.offer(new QueuedModel(model, System.nanoTime()));
+            updateSaturation();
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    try {
+                        getScheduler().schedule(this::drain);
+                    } catch (RejectedExecutionException e) {
+                        // the scheduler got disposed in the meantime
+                        getScheduler().schedule(this::drain);
+                    }
+                } catch (RuntimeException e) {
+                    draining.set(false); // lets the next published model schedule the drain again
+                    throw e;
+                }
+            }
+        }
+
+        private void updateSaturation() {
+            boolean full = queue.size() >= options.getPublishingQueueCapacity();
+            if (saturated.compareAndSet(!full, full)) {
+                onSaturationChanged(full);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drain() {
+            try {
+                if (listener instanceof ScrapedDataBatchListener) {
+                    drainInBatches((ScrapedDataBatchListener<Object>) listener);
+                } else {
+                    QueuedModel queued;
+                    while ((queued = queue.poll()) != null) {
+                        deliver(List.of(queued.model));
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // the publishing thread might have marked the queue full based on its size read before this drain emptied it
+            updateSaturation();
+            if (!queue.isEmpty()) {
+                scheduleDrain(); // something got enqueued after the last poll
+            }
+        }
+
+        private void drainInBatches(ScrapedDataBatchListener<Object> batchListener) {
+            List<Object> batch = new ArrayList<>();
+            QueuedModel first;
+            while ((first = queue.poll()) != null) {
+                batch.add(first.model);
+                // counted from the publishing of the first model, it might have waited in the queue for a while already
+                long deadline = first.enqueuedNanos + batchListener.getMaxBatchDelay().toNanos();
+                while (batch.size() < batchListener.getMaxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    QueuedModel next;
+                    try {
+                        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next.model);
+                }
+                deliver(batch);
+                batch = new ArrayList<>();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver(List<Object> models) {
+            try {
+                if (listener instanceof ScrapedDataBatchListener) {
+                    ((ScrapedDataBatchListener<Object>) listener).onScrapedData(models);
+                } else {
+                    listener.onScrapedData(models.get(0));
+                }
+            } catch (Exception e) {
+                log.error("Error in listener while publishing data of type '{}'", models.get(0).getClass().getSimpleName(), e);
+            } finally {
+                pendingCount.addAndGet(-models.size());
+                updateSaturation();
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class QueuedModel {
+        private final Object model;
+        private final long enqueuedNanos; // System.nanoTime() at publishing
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.data.publishing;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Receives scraped data in batches - suitable for sinks that are more efficient writing many records at once (e.g. databases).
+ * A batch is delivered once it reaches {@link #getMaxBatchSize()} or once {@link #getMaxBatchDelay()} has passed since its first element was published
+ * (handed over for delivery to the listeners) - including the time it waited for the preceding batches to be delivered
+ */
+public interface ScrapedDataBatchListener<T> extends ScrapedDataListener<T> {
+
+    void onScrapedData(List<T> batch);
+
+    @Override
+    default void onScrapedData(T data) {
+        onScrapedData(List.of(data));
+    }
+
+    default int getMaxBatchSize() {
+        return 100;
+    }
+
+    default Duration getMaxBatchDelay() {
+        return Duration.ofSeconds(1);
+    }
+
+}
@@ -17,11 +17,18 @@
 package com.github.scrape.flow.data.publishing;
 
 import com.github.scrape.flow.execution.FinalizedModels;
+import com.github.scrape.flow.execution.LoadingBackpressure;
 import com.github.scrape.flow.execution.StepAndDataRelationshipTracker;
 import com.github.scrape.flow.execution.StepOrder;
+import com.github.scrape.flow.scraping.Options;
+import com.github.scrape.flow.scraping.PublishingMode;
 import com.github.scrape.flow.scraping.SpawnedSteps;
 import lombok.extern.log4j.Log4j2;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -30,17 +37,30 @@ import java.util.stream.Collectors;
 public class ScrapedDataPublisher {
 
     private final StepAndDataRelationshipTracker stepAndDataRelationshipTracker;
+    private final Options options;
+    private final PublishingPipeline publishingPipeline;
+    private final ModelSubscriptions modelSubscriptions;
+    private final LoadingBackpressure loadingBackpressure;
 
     // determines the order in which data can be published for all steps
     private final Queue<StepOrder> publishingOrderQueue = new PriorityQueue<>(100, StepOrder.NATURAL_COMPARATOR);
+    // steps whose data got published ahead of order (PublishingMode.BOUNDED_REORDER) - these are skipped once they get to the head of the publishingOrderQueue
+    private final Set<StepOrder> publishedAheadOfOrder = new HashSet<>();
 
     // contains data that is waiting to be published if some earlier step is yet to finished and get published first
-    private final Queue<FinalizedModels> waitingToPublishQueue = new PriorityQueue<>(100, FinalizedModels.NATURAL_COMPARATOR);
+    private final Queue<WaitingModels> waitingToPublishQueue = new PriorityQueue<>(100, WaitingModels.NATURAL_COMPARATOR);
     private final Set<StepOrder> waitingToPublishSet = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // the same waiting data in the order it started waiting
+    private final Deque<WaitingModels> waitingByArrival = new ArrayDeque<>();
+    private Disposable scheduledRelease;
 
 
-    public ScrapedDataPublisher(StepAndDataRelationshipTracker stepAndDataRelationshipTracker) {
+    public ScrapedDataPublisher(StepAndDataRelationshipTracker stepAndDataRelationshipTracker, Options options) {
         this.stepAndDataRelationshipTracker = stepAndDataRelationshipTracker;
+        this.options = options;
+        this.publishingPipeline = new PublishingPipeline(options);
+        this.modelSubscriptions = new ModelSubscriptions(options);
+        this.loadingBackpressure = LoadingBackpressure.anyOf(publishingPipeline, modelSubscriptions);
     }
 
     /**
@@ -49,7 +69,9 @@ public class ScrapedDataPublisher {
      * @param steps hold generated models to be populated by subsequent step execution with parsed data ...
      */
     public synchronized void enqueueStepsToAwaitDataPublishing(SpawnedSteps steps) {
-        publishingOrderQueue.addAll(steps.getSteps());
+        if (options.getPublishingMode() != PublishingMode.UNORDERED) {
+            publishingOrderQueue.addAll(steps.getSteps());
+        }
     }
 
     public synchronized void publishDataAfterStepFinished(StepOrder finishedStep) {
@@ -85,39 +107,68 @@ public class ScrapedDataPublisher {
     }
 
     private void handlePublishing(StepOrder stepOrder, List<FinalizedModels> newFinalized) {
+        PublishingMode mode = options.getPublishingMode();
+        if (mode == PublishingMode.UNORDERED) {
+            publishUnordered(stepOrder, newFinalized);
+            return;
+        }
         if (!newFinalized.isEmpty()) {
-            waitingToPublishQueue.addAll(newFinalized);
+            long now = System.nanoTime();
+            for (FinalizedModels fin : newFinalized) {
+                WaitingModels waiting = new WaitingModels(fin, now);
+                waitingToPublishQueue.add(waiting);
+                waitingByArrival.add(waiting);
+            }
+            publishInOrder(stepOrder);
+        }
+        if (mode == PublishingMode.BOUNDED_REORDER) {
+            releaseBeyondReorderLimits(stepOrder);
+        }
+    }
 
-            while (true) {
+    private void publishUnordered(StepOrder stepOrder, List<FinalizedModels> newFinalized) {
+        // anything left waiting from before the mode got switched goes out first
+        while (!waitingToPublishQueue.isEmpty()) {
+            removeFromWaitingAndPublish(stepOrder, waitingToPublishQueue.peek());
+        }
+        publishingOrderQueue.clear();
+        publishedAheadOfOrder.clear();
+        for (FinalizedModels fin : newFinalized) {
+            fin.getModels().getSteps().forEach(waitingToPublishSet::remove);
+            publish(stepOrder, fin);
+        }
+    }
 
-                FinalizedModels nextWaiting = waitingToPublishQueue.peek();
+    private void publishInOrder(StepOrder stepOrder) {
+        while (true) {
 
-                if (nextWaiting != null) {
-                    List<StepOrder> waitingSteps = nextWaiting.getModels().getSteps().stream().sorted(StepOrder.NATURAL_COMPARATOR).collect(Collectors.toList());
+            WaitingModels nextWaiting = waitingToPublishQueue.peek();
 
-                    if (!publishingOrderQueue.isEmpty()) {
-                        boolean publish = pollPublishingQueueIfPublishingPossible(stepOrder, waitingSteps);
-                        if (publish) {
-                            removeFromWaitingAndPublish(stepOrder, nextWaiting);
-                        } else {
-                            log.debug("delaying sending finalized data: {}", waitingSteps);
-                            break;
-                        }
-                    } else {
+            if (nextWaiting != null) {
+                List<StepOrder> waitingSteps = nextWaiting.getSteps().stream().sorted(StepOrder.NATURAL_COMPARATOR).collect(Collectors.toList());
+
+                if (peekPublishingHead() != null) {
+                    boolean publish = pollPublishingQueueIfPublishingPossible(stepOrder, waitingSteps);
+                    if (publish) {
                         removeFromWaitingAndPublish(stepOrder, nextWaiting);
+                    } else {
+                        log.debug("delaying sending finalized data: {}", waitingSteps);
+                        break;
                     }
                 } else {
-                    break;
+                    removeFromWaitingAndPublish(stepOrder, nextWaiting);
                 }
-
+            } else {
+                break;
             }
+
         }
     }
 
     private boolean pollPublishingQueueIfPublishingPossible(StepOrder stepOrder, List<StepOrder> waitingSteps) {
         boolean publish = false;
         for (StepOrder waitingStep : waitingSteps) {
-            StepOrder publishingHead = publishingOrderQueue.peek();
+            StepOrder publishingHead = peekPublishingHead();
             log.debug("publishingHead: {}", publishingHead);
             log.debug("waitingHead: {}", waitingSteps);
 
@@ -133,10 +184,83 @@ public class ScrapedDataPublisher {
         return publish;
     }
 
-    private void removeFromWaitingAndPublish(StepOrder stepOrder, FinalizedModels nextWaiting) {
+    private StepOrder peekPublishingHead() {
+        StepOrder head = publishingOrderQueue.peek();
+        while (head != null && publishedAheadOfOrder.remove(head)) {
+            publishingOrderQueue.poll();
+            head = publishingOrderQueue.peek();
+        }
+        return head;
+    }
+
+    /**
+     * Publishes waiting data in step order until the reorder buffer is within its size limit and none of the data has waited longer than allowed
+     */
+    private void releaseBeyondReorderLimits(StepOrder stepOrder) {
+        while (waitingToPublishQueue.size() > options.getMaxReorderBufferSize()) {
+            releaseAheadOfOrder(stepOrder);
+        }
+        long maxDelayNanos = options.getMaxReorderDelay().toNanos();
+        WaitingModels oldest;
+        while ((oldest = oldestWaiting()) != null && System.nanoTime() - oldest.waitingSince >= maxDelayNanos) {
+            // data of earlier steps goes out together with the oldest so that the released data stays ordered
+            while (!oldest.published) {
+                releaseAheadOfOrder(stepOrder);
+            }
+        }
+        scheduleRelease();
+    }
+
+    private void releaseAheadOfOrder(StepOrder stepOrder) {
+        WaitingModels nextWaiting = waitingToPublishQueue.peek();
+        log.debug("{} releasing finalized data ahead of order: {}, reorder buffer occupancy: {}", stepOrder, nextWaiting.getSteps(), waitingToPublishQueue.size());
+        publishedAheadOfOrder.addAll(nextWaiting.getSteps());
+        removeFromWaitingAndPublish(stepOrder, nextWaiting);
+    }
+
+    private WaitingModels oldestWaiting() {
+        while (!waitingByArrival.isEmpty() && waitingByArrival.peek().published) {
+            waitingByArrival.poll();
+        }
+        return waitingByArrival.peek();
+    }
+
+    /**
+     * Makes sure data gets released after waiting for the max reorder delay even if no other step finishes in the meantime
+     */
+    private void scheduleRelease() {
+        WaitingModels oldest = oldestWaiting();
+        if (oldest == null || scheduledRelease != null) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - oldest.waitingSince;
+        Duration delay = options.getMaxReorderDelay().minusNanos(elapsedNanos);
+        scheduledRelease = Mono.delay(delay.isNegative() ? Duration.ZERO : delay)
+                .subscribe(
+                        num -> releaseExpired(oldest.finalizedModels.getModels().getParent()),
+                        throwable -> log.warn("Error in scheduled release of reordered data", throwable)
+                );
+    }
+
+    private synchronized void cancelScheduledRelease() {
+        if (scheduledRelease != null) {
+            scheduledRelease.dispose();
+            scheduledRelease = null;
+        }
+    }
+
+    private synchronized void releaseExpired(StepOrder stepOrder) {
+        scheduledRelease = null;
+        if (options.getPublishingMode() == PublishingMode.BOUNDED_REORDER) {
+            releaseBeyondReorderLimits(stepOrder);
+        }
+    }
+
+    private void removeFromWaitingAndPublish(StepOrder stepOrder, WaitingModels nextWaiting) {
         waitingToPublishQueue.poll();
-        nextWaiting.getModels().getSteps().forEach(waitingToPublishSet::remove);
-        publish(stepOrder, nextWaiting);
+        nextWaiting.published = true;
+        nextWaiting.getSteps().forEach(waitingToPublishSet::remove);
+        publish(stepOrder, nextWaiting.finalizedModels);
     }
 
 
@@ -145,10 +269,82 @@ public class ScrapedDataPublisher {
             log.debug("{} has finalized data of type '{}'", stepOrder, mtp.getModel().getClass().getSimpleName());
             if (mtp.getScrapedDataListener() != null) {
                 log.debug("{} About to publish data to listener for type '{}' after step finished", stepOrder, mtp.getModelClass().getSimpleName());
-                mtp.getScrapedDataListener().onScrapedData(mtp.getModel());
+                publishingPipeline.publish(mtp.getScrapedDataListener(), mtp.getModel());
             }
+            modelSubscriptions.publish(mtp.getModelClass(), mtp.getModel());
+        }
+    }
+
+    /**
+     * Data is delivered to listeners asynchronously
+     *
+     * @return true if all published data was delivered to listeners within the given timeout
+     */
+    public boolean awaitDelivered(Duration timeout) {
+        long start = System.nanoTime();
+        if (!publishingPipeline.awaitDelivered(timeout)) {
+            return false;
         }
+        Duration remaining = timeout.minusNanos(System.nanoTime() - start);
+        return modelSubscriptions.awaitDelivered(remaining.isNegative() ? Duration.ZERO : remaining);
+    }
+
+    /**
+     * Only models created after the subscription get emitted. Models are emitted as the subscriber requests them -
+     * while a subscriber does not keep up, {@link #getLoadingBackpressure()} pauses the loading of new pages
+     */
+    public <T> Flux<T> getScrapedData(Class<T> modelClass) {
+        return modelSubscriptions.flux(modelClass);
+    }
+
+    /**
+     * @return true if the models of the given class need to be published even if they have no listener
+     */
+    public boolean hasSubscribers(Class<?> modelClass) {
+        return modelSubscriptions.hasSubscribers(modelClass);
+    }
+
+    /**
+     * @return backpressure pausing the loading of new pages while a listener or a subscriber does not keep up with the scraped data
+     */
+    public LoadingBackpressure getLoadingBackpressure() {
+        return loadingBackpressure;
+    }
+
+    /**
+     * Completes the fluxes of scraped data once their subscribers receive all data published so far,
+     * releases the threads delivering data to listeners and cancels the pending release of reordered data
+     */
+    public void completeSubscribers() {
+        cancelScheduledRelease();
+        modelSubscriptions.complete();
+        publishingPipeline.disposeScheduler();
     }
 
+    /**
+     * @return the number of finalized data held back until data of the preceding steps gets published
+     */
+    public synchronized int getReorderBufferOccupancy() {
+        return waitingToPublishQueue.size();
+    }
+
+
+    private static class WaitingModels {
+
+        private static final Comparator<WaitingModels> NATURAL_COMPARATOR = Comparator.comparing(wm -> wm.finalizedModels, FinalizedModels.NATURAL_COMPARATOR);
+
+        private final FinalizedModels finalizedModels;
+        private final long waitingSince;
+        private boolean published;
+
+        WaitingModels(FinalizedModels finalizedModels, long waitingSince) {
+            this.finalizedModels = finalizedModels;
+            this.waitingSince = waitingSince;
+        }
+
+        List<StepOrder> getSteps() {
+            return finalizedModels.getModels().getSteps();
+        }
+    }
 
 }
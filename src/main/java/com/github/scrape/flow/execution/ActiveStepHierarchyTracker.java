@@ -18,8 +18,6 @@ package com.github.scrape.flow.execution;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.collections4.Trie;
-import org.apache.commons.collections4.trie.PatriciaTrie;
 
 /**
  * Tracks all the steps that are still 'active' - they might be executing or waiting to be executed
@@ -27,27 +25,27 @@ import org.apache.commons.collections4.trie.PatriciaTrie;
 @Log4j2
 public class ActiveStepHierarchyTracker {
 
-    private final Trie<String, TrackedStepOrder> patriciaTrie = new PatriciaTrie<>();
+    private final StepOrderIndex<TrackedStepOrder> index = new StepOrderIndex<>();
 
     /**
      * @return true if this or any child step is still being tracked; false otherwise
      */
     public synchronized boolean isPartOfActiveStepSequence(StepOrder stepOrder) {
-        return patriciaTrie.prefixMap(stepOrder.asString()).size() > 0;
+        return index.containsSubtree(stepOrder);
     }
 
     public synchronized boolean isActive(StepOrder stepOrder) {
-        return patriciaTrie.get(stepOrder.asString()) != null;
+        return index.contains(stepOrder);
     }
 
     public synchronized void track(StepOrder stepOrder, String stepName) {
         log.debug("tracking {} - {}", stepOrder, stepName);
-        patriciaTrie.put(stepOrder.asString(), new TrackedStepOrder(stepOrder, stepName));
+        index.put(stepOrder, new TrackedStepOrder(stepOrder, stepName));
     }
 
     public synchronized void untrack(StepOrder stepOrder) {
         log.debug("untracked {}", stepOrder);
-        patriciaTrie.remove(stepOrder.asString()); // maybe enough ?
+        index.remove(stepOrder);
     }
 
 
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+/**
+ * Notified by {@link ActiveStepsTracker} under its lock - implementations must not call back into the tracker's
+ * state guarded by other locks and need to be cheap as all the threads tracking steps wait for them
+ */
+interface ActiveStepsListener {
+
+    void stepTracked(StepOrder stepOrder);
+
+    void stepUntracked(StepOrder stepOrder);
+
+}
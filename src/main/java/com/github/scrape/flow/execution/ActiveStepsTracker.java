@@ -16,14 +16,21 @@
 
 package com.github.scrape.flow.execution;
 
+import com.github.scrape.flow.scraping.ClientType;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.collections4.Trie;
-import org.apache.commons.collections4.trie.PatriciaTrie;
 
-import java.util.SortedMap;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Tracks all the steps that are still 'active' - they might be executing or waiting to be executed;
@@ -32,39 +39,123 @@ import java.util.TreeMap;
 @Log4j2
 public class ActiveStepsTracker {
 
-    private final Trie<String, TrackedStepOrder> patriciaTrie = new PatriciaTrie<>();
-    private final SortedMap<StepOrder, TrackedStepOrder> sortedMap = new TreeMap<>(StepOrder.NATURAL_COMPARATOR);
+    private static final ClientType[] CLIENT_TYPES = ClientType.values();
+
+    private final StepOrderIndex<TrackedStepOrder> index = new StepOrderIndex<>();
+
+    /**
+     * Active steps grouped by their remaining loading depth, per client type. Maintained on track/untrack so that
+     * the max remaining loading depth of steps preceding a given step can be looked up without visiting all active steps
+     */
+    private final Map<ClientType, NavigableMap<Integer, NavigableSet<StepOrder>>> stepsByRemainingLoadingDepth = new EnumMap<>(ClientType.class);
+
+    @Setter
+    private volatile StepHierarchyRepository stepHierarchyRepository;
+
+    private final List<ActiveStepsListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ActiveStepsTracker() {
+        for (ClientType clientType : CLIENT_TYPES) {
+            stepsByRemainingLoadingDepth.put(clientType, new TreeMap<>());
+        }
+    }
 
     /**
      * @return true if this or any child step is still being tracked; false otherwise
      */
     public synchronized boolean isPartOfActiveStepSequence(StepOrder stepOrder) {
-        return patriciaTrie.prefixMap(getKey(stepOrder)).size() > 0;
+        return index.containsSubtree(stepOrder);
+    }
+
+    /**
+     * @return the number of active steps in the subtree of the given step including the step itself
+     */
+    synchronized int activeStepCount(StepOrder stepOrder) {
+        return index.subtreeCount(stepOrder);
     }
 
     public synchronized boolean isActive(StepOrder stepOrder) {
-        return patriciaTrie.get(getKey(stepOrder)) != null;
+        return index.contains(stepOrder);
     }
 
     public synchronized void track(StepOrder stepOrder, StepOrder hierarchyOrder, String stepName) {
         log.debug("tracking {} - {}", stepOrder, stepName);
-        TrackedStepOrder tracked = new TrackedStepOrder(stepOrder, stepName, hierarchyOrder);
-        patriciaTrie.put(getKey(stepOrder), tracked);
-        sortedMap.put(stepOrder, tracked);
+        TrackedStepOrder tracked = new TrackedStepOrder(stepOrder, stepName, hierarchyOrder, calcRemainingLoadingDepths(hierarchyOrder));
+        TrackedStepOrder previous = index.put(stepOrder, tracked);
+        if (previous != null) {
+            removeRemainingLoadingDepths(previous);
+        }
+        addRemainingLoadingDepths(tracked);
+        if (previous == null) {
+            listeners.forEach(l -> l.stepTracked(stepOrder));
+        }
     }
 
     public synchronized void untrack(StepOrder stepOrder) {
         log.debug("untracked {}", stepOrder);
-        patriciaTrie.remove(getKey(stepOrder)); // maybe enough ?
-        sortedMap.remove(stepOrder);
+        TrackedStepOrder removed = index.remove(stepOrder);
+        if (removed != null) {
+            removeRemainingLoadingDepths(removed);
+            listeners.forEach(l -> l.stepUntracked(stepOrder));
+        }
+    }
+
+    void addListener(ActiveStepsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Active steps with an active parent are covered by the parent - the remaining loading depth of a step
+     * is never greater than that of its parent which also precedes the given step
+     *
+     * @return the max remaining loading depth of active steps preceding the given step or 0 if there are none
+     */
+    public synchronized int getRemainingLoadingDepthMaxOfPrecedingSteps(StepOrder stepOrder, ClientType clientType) {
+        NavigableMap<Integer, NavigableSet<StepOrder>> byDepth = stepsByRemainingLoadingDepth.get(clientType);
+        for (Map.Entry<Integer, NavigableSet<StepOrder>> entry : byDepth.descendingMap().entrySet()) {
+            if (entry.getValue().first().isBefore(stepOrder)) {
+                return entry.getKey();
+            }
+        }
+        return 0;
+    }
+
+    private int[] calcRemainingLoadingDepths(StepOrder hierarchyOrder) {
+        StepHierarchyRepository repository = stepHierarchyRepository;
+        if (repository == null || hierarchyOrder == null) {
+            return null;
+        }
+        int[] depths = new int[CLIENT_TYPES.length];
+        for (ClientType clientType : CLIENT_TYPES) {
+            depths[clientType.ordinal()] = repository.getRemainingLoadingPathDepth(hierarchyOrder, clientType);
+        }
+        return depths;
     }
 
-    public synchronized SortedMap<StepOrder, TrackedStepOrder> getPrecedingSteps(StepOrder stepOrder) {
-        return new TreeMap<>(sortedMap.headMap(stepOrder));
+    private void addRemainingLoadingDepths(TrackedStepOrder tracked) {
+        if (tracked.remainingLoadingDepths != null) {
+            for (ClientType clientType : CLIENT_TYPES) {
+                stepsByRemainingLoadingDepth.get(clientType)
+                        .computeIfAbsent(tracked.remainingLoadingDepths[clientType.ordinal()], d -> new TreeSet<>(StepOrder.NATURAL_COMPARATOR))
+                        .add(tracked.stepOrder);
+            }
+        }
     }
 
-    private String getKey(StepOrder stepOrder) {
-        return stepOrder.asString();
+    private void removeRemainingLoadingDepths(TrackedStepOrder tracked) {
+        if (tracked.remainingLoadingDepths != null) {
+            for (ClientType clientType : CLIENT_TYPES) {
+                NavigableMap<Integer, NavigableSet<StepOrder>> byDepth = stepsByRemainingLoadingDepth.get(clientType);
+                int depth = tracked.remainingLoadingDepths[clientType.ordinal()];
+                NavigableSet<StepOrder> steps = byDepth.get(depth);
+                if (steps != null) {
+                    steps.remove(tracked.stepOrder);
+                    if (steps.isEmpty()) {
+                        byDepth.remove(depth);
+                    }
+                }
+            }
+        }
     }
 
     // TODO maybe here we could have info about the loading type and the level out of x max levels
@@ -74,6 +165,8 @@ public class ActiveStepsTracker {
         private final StepOrder stepOrder;
         private final String stepName;
         private final StepOrder hierarchyOrder;
+        @Getter(AccessLevel.NONE)
+        private final int[] remainingLoadingDepths;
     }
 
 
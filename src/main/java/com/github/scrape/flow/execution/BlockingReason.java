@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+/**
+ * Reasons why a queued task cannot be executed yet
+ */
+enum BlockingReason {
+
+    NONE,
+
+    /**
+     * the task would expand more next steps while the task queue is full
+     */
+    QUEUE_FULL,
+
+    /**
+     * the task lazily expands next steps and needs to wait until no other task of its lane can be executed
+     */
+    AWAITING_IDLE_LANE,
+
+    /**
+     * the parent step has not finished yet
+     */
+    PARENT_ACTIVE,
+
+    /**
+     * a preceding sibling requiring exclusive execution has not finished yet
+     */
+    EXCLUSIVE_SIBLING_ACTIVE,
+
+    /**
+     * the lane is already executing as many tasks as it is allowed to
+     */
+    CONCURRENCY_LIMIT,
+
+    /**
+     * too many throttlable tasks are executing
+     */
+    THROTTLING_LIMIT,
+
+    /**
+     * the rate limiter does not permit another request yet
+     */
+    RATE_LIMIT,
+
+    /**
+     * the task would load a new page while the maximum of pages is open
+     */
+    OPEN_PAGES_LIMIT,
+
+    /**
+     * the task would load a new page while the consumers of scraped data are not requesting more
+     */
+    BACKPRESSURE,
+
+    /**
+     * the client cannot be reserved or accessed yet
+     */
+    CLIENT_UNAVAILABLE;
+
+    /**
+     * @return true if all tasks blocked for this reason by the same key become executable at the same time;
+     * false if only the first of them can proceed and the rest need to wait for their turn
+     */
+    boolean releasesWholeGroup() {
+        return this == PARENT_ACTIVE || this == EXCLUSIVE_SIBLING_ACTIVE;
+    }
+
+    /**
+     * @return true if tasks blocked for this reason can only become executable after a step finishes or a client gets released
+     * so they need to be re-checked only after such an event; false if they need to be re-checked every time tasks are dispatched
+     */
+    boolean isRecheckedOnEvent() {
+        return this == PARENT_ACTIVE || this == EXCLUSIVE_SIBLING_ACTIVE || this == CLIENT_UNAVAILABLE;
+    }
+
+}
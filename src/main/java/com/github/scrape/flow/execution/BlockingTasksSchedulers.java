@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.scraping.ExecutionMode;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Schedulers for tasks making blocking HTTP requests
+ */
+@Log4j2
+class BlockingTasksSchedulers {
+
+    // used when virtual threads are not available at runtime
+    private static final int ELASTIC_THREADS_MAX = 512;
+
+    // TODO number should be at least the number of open windows in chrome ...
+    //  depends how we will handle windows ... vs threads ...
+    //  in fact we should not have separate threads for loading stuff ...
+    private static final Scheduler boundedThreadPoolScheduler = Schedulers.newBoundedElastic(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE, "io-worker", 60, true);
+
+    // created on first use only
+    private static Scheduler virtualThreadsScheduler;
+
+    private BlockingTasksSchedulers() {
+    }
+
+    static Scheduler forMode(ExecutionMode executionMode) {
+        if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+            return getVirtualThreadsScheduler();
+        }
+        return boundedThreadPoolScheduler;
+    }
+
+    private static synchronized Scheduler getVirtualThreadsScheduler() {
+        if (virtualThreadsScheduler == null) {
+            virtualThreadsScheduler = createVirtualThreadsScheduler();
+        }
+        return virtualThreadsScheduler;
+    }
+
+    // the project is compiled for an older Java version so the virtual thread API can only be accessed reflectively
+    private static Scheduler createVirtualThreadsScheduler() {
+        try {
+            ExecutorService executorService = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("Blocking tasks will be executed on virtual threads");
+            return Schedulers.fromExecutorService(executorService, "virtual-io-worker");
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not supported by this JVM (Java 21+ is required) - blocking tasks will be executed on an elastic pool of up to {} threads", ELASTIC_THREADS_MAX);
+            return Schedulers.newBoundedElastic(ELASTIC_THREADS_MAX, Integer.MAX_VALUE, "io-elastic-worker", 60, true);
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientId;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides a single-threaded scheduler for each client so that work done with different clients can run in parallel
+ * while access to any one client (its DOM) stays serialized
+ */
+@ThreadSafe
+class ClientSchedulers {
+
+    private final Map<ClientId, Scheduler> schedulers = new ConcurrentHashMap<>();
+
+    Scheduler forClient(ClientId clientId) {
+        return schedulers.computeIfAbsent(clientId, this::newScheduler);
+    }
+
+    private Scheduler newScheduler(ClientId clientId) {
+        String name = "client-" + clientId.getClientType().name().toLowerCase() + "-" + clientId.getClientNo();
+        return Schedulers.newSingle(name, true);
+    }
+
+}
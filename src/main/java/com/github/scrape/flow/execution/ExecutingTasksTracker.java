@@ -18,24 +18,41 @@ package com.github.scrape.flow.execution;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Counts are kept in atomic counters updated on track/untrack as they are read on every admission check
+ */
 public class ExecutingTasksTracker {
 
     private final Map<StepOrder, Task> tracked = new ConcurrentHashMap<>();
+    private final AtomicInteger executingCount = new AtomicInteger();
+    private final AtomicInteger executingThrottlableCount = new AtomicInteger();
 
     public void track(Task task) {
-        tracked.put(task.getStepOrder(), task);
+        if (tracked.put(task.getStepOrder(), task) == null) {
+            executingCount.incrementAndGet();
+            if (task.isThrottlingAllowed()) {
+                executingThrottlableCount.incrementAndGet();
+            }
+        }
     }
 
     public void untrack(Task task) {
-        tracked.remove(task.getStepOrder());
+        Task removed = tracked.remove(task.getStepOrder());
+        if (removed != null) {
+            executingCount.decrementAndGet();
+            if (removed.isThrottlingAllowed()) {
+                executingThrottlableCount.decrementAndGet();
+            }
+        }
     }
 
     public int countOfExecutingTasks() {
-        return tracked.size();
+        return executingCount.get();
     }
 
     public int countOfExecutingThrottlableTasks() {
-        return (int) tracked.values().stream().filter(Task::isThrottlingAllowed).count();
+        return executingThrottlableCount.get();
     }
 }
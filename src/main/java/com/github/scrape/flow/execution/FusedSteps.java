@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Steps fused into the task whose runnable is executing on the current thread. They are executed one after another
+ * once the runnable of the task finishes, still within the same task. Steps submitted by fused steps get fused as well
+ * so whole chains of steps run without being queued.
+ * <p>
+ * Also collects the batch of sibling executions of the same step that is being submitted by the task, see {@link StepBatch}
+ */
+@NotThreadSafe
+class FusedSteps {
+
+    private static final ThreadLocal<FusedSteps> CURRENT = new ThreadLocal<>();
+
+    private final FusedSteps enclosing;
+    private final boolean fusionAllowed;
+    private final Deque<TaskDefinition> pending = new ArrayDeque<>();
+    private final List<StepOrder> finished = new ArrayList<>();
+    private StepBatch pendingBatch;
+    private boolean orderingStepSubmitted;
+
+    private FusedSteps(FusedSteps enclosing, boolean fusionAllowed) {
+        this.enclosing = enclosing;
+        this.fusionAllowed = fusionAllowed;
+    }
+
+    /**
+     * @return the steps fused into the task executing on the current thread or null if there is no such task
+     */
+    static FusedSteps current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param fusionAllowed false if steps cannot be fused into the task, only batched
+     */
+    static FusedSteps open(boolean fusionAllowed) {
+        FusedSteps fusedSteps = new FusedSteps(CURRENT.get(), fusionAllowed);
+        CURRENT.set(fusedSteps);
+        return fusedSteps;
+    }
+
+    void close() {
+        if (enclosing != null) {
+            CURRENT.set(enclosing);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    boolean isFusionAllowed() {
+        return fusionAllowed;
+    }
+
+    void add(TaskDefinition taskDefinition) {
+        pending.add(taskDefinition);
+    }
+
+    /**
+     * @return the next step to execute or null if there is none
+     */
+    TaskDefinition pollNext() {
+        return pending.poll();
+    }
+
+    /**
+     * Finished steps are reported only once all the fused steps are done so that none of the steps waiting for them
+     * can access the client while the fused steps are still being executed
+     */
+    void markFinished(StepOrder stepOrder) {
+        finished.add(stepOrder);
+    }
+
+    /**
+     * @return steps that were not executed because the execution of the task failed
+     */
+    List<TaskDefinition> discardPending() {
+        List<TaskDefinition> discarded = new ArrayList<>(pending);
+        pending.clear();
+        return discarded;
+    }
+
+    List<StepOrder> getFinished() {
+        return finished;
+    }
+
+    /**
+     * Called when a step that modifies the page or requires exclusive execution gets submitted as a task of its own.
+     * Steps ordered after it cannot be executed inline anymore
+     */
+    void markOrderingStepSubmitted() {
+        orderingStepSubmitted = true;
+    }
+
+    boolean isOrderingStepSubmitted() {
+        return orderingStepSubmitted;
+    }
+
+    /**
+     * @return the batch still being collected or null if there is none
+     */
+    StepBatch getPendingBatch() {
+        return pendingBatch;
+    }
+
+    void setPendingBatch(StepBatch pendingBatch) {
+        this.pendingBatch = pendingBatch;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+/**
+ * Lets the consumers of scraped data hold back the loading of new pages while they cannot keep up with it
+ */
+public interface LoadingBackpressure {
+
+    LoadingBackpressure NONE = new LoadingBackpressure() {
+        @Override
+        public boolean isLoadingPaused() {
+            return false;
+        }
+
+        @Override
+        public void addResumeListener(Runnable listener) {
+        }
+    };
+
+    /**
+     * @return true while no new pages should be loaded
+     */
+    boolean isLoadingPaused();
+
+    /**
+     * @param listener called whenever paused loading can be resumed
+     */
+    void addResumeListener(Runnable listener);
+
+    /**
+     * @return backpressure pausing the loading while any of the given ones does
+     */
+    static LoadingBackpressure anyOf(LoadingBackpressure... backpressures) {
+        return new LoadingBackpressure() {
+            @Override
+            public boolean isLoadingPaused() {
+                for (LoadingBackpressure backpressure : backpressures) {
+                    if (backpressure.isLoadingPaused()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void addResumeListener(Runnable listener) {
+                for (LoadingBackpressure backpressure : backpressures) {
+                    backpressure.addResumeListener(listener);
+                }
+            }
+        };
+    }
+
+}
@@ -31,6 +31,7 @@ class QueuedTask {
     private final Task task;
     private final Consumer<TaskResult> taskResultConsumer;
     private final Consumer<TaskError> taskErrorConsumer;
-    private final long enqueuedTimestamp;
+    // System.nanoTime() at submission
+    private final long enqueuedNanos;
 
 }
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import lombok.Data;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Task queue that does not let blocked tasks hold up the tasks queued behind them.
+ * <p>
+ * Tasks found to be blocked are parked in groups keyed by the reason and the thing they are waiting for
+ * (e.g. the parent step or the client). The executor only re-examines the first task of each group instead of
+ * scanning the whole queue and the executable tasks are still handed out in their natural (StepOrder) order.
+ * <p>
+ * Groups waiting for a specific event (see {@link BlockingReason#isRecheckedOnEvent()}) are re-examined only after the owning executor
+ * reports that event for them so the cost of releasing unblocked tasks does not grow with the number of blocked groups.
+ * <p>
+ * The ordering is supplied from outside and the queue is re-ordered whenever it changes.
+ * <p>
+ * The size is readable from any thread, all other access needs to be guarded by the owning executor
+ */
+@NotThreadSafe
+class SkipAheadTaskQueue {
+
+    private final Supplier<Comparator<QueuedTask>> orderingSupplier;
+    private Comparator<QueuedTask> ordering;
+    private PriorityQueue<QueuedTask> candidates;
+    private final Map<BlockingReason, Map<Object, PriorityQueue<QueuedTask>>> blockedGroups = new EnumMap<>(BlockingReason.class);
+    // groups waiting for an event that has happened since they were last examined
+    private final Set<BlockedGroupKey> groupsToRecheck = new LinkedHashSet<>();
+    private int blockedGroupCount;
+    private volatile int size;
+
+    SkipAheadTaskQueue() {
+        this(() -> QueuedTask.NATURAL_COMPARATOR);
+    }
+
+    SkipAheadTaskQueue(Supplier<Comparator<QueuedTask>> orderingSupplier) {
+        this.orderingSupplier = orderingSupplier;
+        this.ordering = orderingSupplier.get();
+        this.candidates = new PriorityQueue<>(100, ordering);
+    }
+
+    void add(QueuedTask queuedTask) {
+        ensureOrdering();
+        candidates.add(queuedTask);
+        size++;
+    }
+
+    /**
+     * @return the next task that is not known to be blocked or null if there is none
+     */
+    QueuedTask pollCandidate() {
+        ensureOrdering();
+        QueuedTask next = candidates.poll();
+        if (next != null) {
+            size--;
+        }
+        return next;
+    }
+
+    void park(QueuedTask queuedTask, BlockingReason reason, Object blockedBy) {
+        ensureOrdering();
+        blockedGroups.computeIfAbsent(reason, r -> new HashMap<>())
+                .computeIfAbsent(blockedBy, k -> {
+                    blockedGroupCount++;
+                    return new PriorityQueue<>(ordering);
+                })
+                .add(queuedTask);
+        size++;
+    }
+
+    /**
+     * Marks the group of tasks blocked for the given reason by the given key (if there is one) to be examined by the next
+     * {@link #releaseUnblocked(UnblockedCheck)}
+     */
+    void recheck(BlockingReason reason, Object blockedBy) {
+        Map<Object, PriorityQueue<QueuedTask>> groups = blockedGroups.get(reason);
+        if (groups != null && groups.containsKey(blockedBy)) {
+            groupsToRecheck.add(new BlockedGroupKey(reason, blockedBy));
+        }
+    }
+
+    /**
+     * Marks all groups of tasks blocked for the given reason to be examined by the next {@link #releaseUnblocked(UnblockedCheck)}
+     */
+    void recheckAll(BlockingReason reason) {
+        Map<Object, PriorityQueue<QueuedTask>> groups = blockedGroups.get(reason);
+        if (groups != null) {
+            groups.keySet().forEach(blockedBy -> groupsToRecheck.add(new BlockedGroupKey(reason, blockedBy)));
+        }
+    }
+
+    /**
+     * Moves tasks of groups that are no longer blocked back among the candidates. Examines the groups that are not waiting
+     * for a specific event and those marked by {@link #recheck(BlockingReason, Object)} or {@link #recheckAll(BlockingReason)}
+     *
+     * @return the number of released tasks
+     */
+    int releaseUnblocked(UnblockedCheck check) {
+        ensureOrdering();
+        int released = 0;
+        for (Map.Entry<BlockingReason, Map<Object, PriorityQueue<QueuedTask>>> byReason : blockedGroups.entrySet()) {
+            BlockingReason reason = byReason.getKey();
+            if (reason.isRecheckedOnEvent()) {
+                continue;
+            }
+            Iterator<Map.Entry<Object, PriorityQueue<QueuedTask>>> it = byReason.getValue().entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Object, PriorityQueue<QueuedTask>> group = it.next();
+                if (check.isUnblocked(reason, group.getKey(), group.getValue().peek())) {
+                    released += release(reason, group.getValue());
+                    if (group.getValue().isEmpty()) {
+                        it.remove();
+                        blockedGroupCount--;
+                    }
+                }
+            }
+        }
+        Iterator<BlockedGroupKey> toRecheck = groupsToRecheck.iterator();
+        while (toRecheck.hasNext()) {
+            BlockedGroupKey key = toRecheck.next();
+            Map<Object, PriorityQueue<QueuedTask>> groups = blockedGroups.get(key.getReason());
+            PriorityQueue<QueuedTask> group = groups == null ? null : groups.get(key.getBlockedBy());
+            if (group == null || !check.isUnblocked(key.getReason(), key.getBlockedBy(), group.peek())) {
+                toRecheck.remove(); // waits for the next event
+                continue;
+            }
+            released += release(key.getReason(), group);
+            if (group.isEmpty()) {
+                groups.remove(key.getBlockedBy());
+                blockedGroupCount--;
+                toRecheck.remove();
+            }
+            // otherwise the group stays marked - the event may unblock its next task too
+        }
+        return released;
+    }
+
+    private int release(BlockingReason reason, PriorityQueue<QueuedTask> group) {
+        if (reason.releasesWholeGroup()) {
+            int released = group.size();
+            candidates.addAll(group);
+            group.clear();
+            return released;
+        }
+        candidates.add(group.poll());
+        return 1;
+    }
+
+    /**
+     * Removes all tasks from this queue
+     *
+     * @return the removed tasks
+     */
+    List<QueuedTask> drain() {
+        List<QueuedTask> drained = new ArrayList<>(candidates);
+        blockedGroups.values().forEach(groups -> groups.values().forEach(drained::addAll));
+        candidates.clear();
+        blockedGroups.clear();
+        groupsToRecheck.clear();
+        blockedGroupCount = 0;
+        size = 0;
+        return drained;
+    }
+
+    /**
+     * Moves the first task blocked for the given reason (not specific to any key) back among the candidates
+     *
+     * @return true if there was such a task
+     */
+    boolean releaseFirst(BlockingReason reason) {
+        ensureOrdering();
+        Map<Object, PriorityQueue<QueuedTask>> groups = blockedGroups.get(reason);
+        PriorityQueue<QueuedTask> group = groups == null ? null : groups.get(null);
+        if (group == null) {
+            return false;
+        }
+        candidates.add(group.poll());
+        if (group.isEmpty()) {
+            groups.remove(null);
+            blockedGroupCount--;
+        }
+        return true;
+    }
+
+    private void ensureOrdering() {
+        Comparator<QueuedTask> current = orderingSupplier.get();
+        if (current != ordering) {
+            ordering = current;
+            PriorityQueue<QueuedTask> reordered = new PriorityQueue<>(Math.max(candidates.size(), 1), current);
+            reordered.addAll(candidates);
+            candidates = reordered;
+            blockedGroups.values().forEach(groups -> groups.replaceAll((blockedBy, group) -> {
+                PriorityQueue<QueuedTask> reorderedGroup = new PriorityQueue<>(Math.max(group.size(), 1), current);
+                reorderedGroup.addAll(group);
+                return reorderedGroup;
+            }));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int blockedGroupCount() {
+        return blockedGroupCount;
+    }
+
+    interface UnblockedCheck {
+
+        /**
+         * @param head the first task in natural order that is blocked for the given reason by the given key
+         */
+        boolean isUnblocked(BlockingReason reason, Object blockedBy, QueuedTask head);
+    }
+
+    @Data
+    private static class BlockedGroupKey {
+        private final BlockingReason reason;
+        private final Object blockedBy;
+    }
+
+}
@@ -18,10 +18,12 @@ package com.github.scrape.flow.execution;
 
 import com.github.scrape.flow.data.publishing.ModelToPublish;
 import com.github.scrape.flow.scraping.SpawnedSteps;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Children spawned by the owning step to which a data model was published.
@@ -36,9 +38,27 @@ public class SpawnedStepsModels extends SpawnedSteps {
      */
     private final List<ModelToPublish> modelToPublishList;
 
+    /**
+     * Count of active steps within the subtrees of the spawned steps. The models can be published once it drops to zero
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger activeStepCount = new AtomicInteger();
+
     public SpawnedStepsModels(StepOrder parent, List<StepOrder> steps, List<ModelToPublish> modelToPublishList) {
         super(parent, steps);
         this.modelToPublishList = modelToPublishList;
     }
 
+    void addActiveSteps(int count) {
+        activeStepCount.addAndGet(count);
+    }
+
+    void removeActiveStep() {
+        activeStepCount.decrementAndGet();
+    }
+
+    boolean hasActiveSteps() {
+        return activeStepCount.get() > 0;
+    }
+
 }
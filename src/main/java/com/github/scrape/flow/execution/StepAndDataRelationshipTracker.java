@@ -18,7 +18,6 @@ package com.github.scrape.flow.execution;
 
 import com.github.scrape.flow.data.publishing.ModelToPublish;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
 import java.util.ArrayList;
@@ -26,24 +25,30 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Tracks the stepOrder of steps whose child step sequence needs to finish so that the data models can be published to registered listeners
  * <p>
- * the data head in this
+ * Each tracked {@link SpawnedStepsModels} counts the active steps in the subtrees of its spawned steps. The counts are updated as steps
+ * get tracked and untracked by the {@link ActiveStepsTracker} so that finding the finalized models only takes a walk up the ancestors of the finished step
  */
 @Log4j2
-@RequiredArgsConstructor
-public class StepAndDataRelationshipTracker {
+public class StepAndDataRelationshipTracker implements ActiveStepsListener {
 
     /**
-     * The owning step order is the step that generated the data model object
+     * Each spawned step belongs to the models of the step that spawned it - the owning step that generated the data model object.
      * Tha data model object is populated with parsed data in the child steps and until they have all finished the data cannot be published to listeners
      */
-    private final Map<StepOrder, SpawnedStepsModelsList> spawnedByParentStep = new ConcurrentHashMap<>();
+    private final Map<StepOrder, SpawnedStepsModels> modelsBySpawnedStep = new ConcurrentHashMap<>();
 
     private final ActiveStepsTracker activeStepsTracker;
 
+    public StepAndDataRelationshipTracker(ActiveStepsTracker activeStepsTracker) {
+        this.activeStepsTracker = activeStepsTracker;
+        activeStepsTracker.addListener(this);
+    }
+
     /**
      * Call this only when the spawnedModel instance was just instantiated (-> do not call this from places where the data model was readily propagated ...)
      *
@@ -54,22 +59,43 @@ public class StepAndDataRelationshipTracker {
     public synchronized void track(StepOrder parent, List<StepOrder> spawnedSteps, List<ModelToPublish> modelToPublishList) {
         SpawnedStepsModels s = new SpawnedStepsModels(parent, spawnedSteps, modelToPublishList);
         log.debug("Tracking {}", s);
-        spawnedByParentStep.compute(parent, (parent0, sl) -> {
-            if (sl == null) {
-                sl = new SpawnedStepsModelsList();
+        // no steps can be tracked or untracked between the registration and the initial count
+        synchronized (activeStepsTracker) {
+            int activeStepCount = 0;
+            for (StepOrder spawnedStep : spawnedSteps) {
+                modelsBySpawnedStep.put(spawnedStep, s);
+                activeStepCount += activeStepsTracker.activeStepCount(spawnedStep);
             }
-            sl.add(s);
-            return sl;
-        });
+            s.addActiveSteps(activeStepCount);
+        }
     }
 
     public synchronized void untrack(SpawnedStepsModels spawnedStepsModels) {
-        SpawnedStepsModelsList spawnedStepsModelsList = spawnedByParentStep.get(spawnedStepsModels.getParent());
-        if (spawnedStepsModelsList != null) {
-            spawnedStepsModelsList.remove(spawnedStepsModels);
-            if (spawnedStepsModelsList.isEmpty()) {
-                spawnedByParentStep.remove(spawnedStepsModels.getParent());
+        spawnedStepsModels.getSteps().forEach(step -> modelsBySpawnedStep.remove(step, spawnedStepsModels));
+    }
+
+    @Override
+    public void stepTracked(StepOrder stepOrder) {
+        forEachModelsContaining(stepOrder, s -> s.addActiveSteps(1));
+    }
+
+    @Override
+    public void stepUntracked(StepOrder stepOrder) {
+        forEachModelsContaining(stepOrder, SpawnedStepsModels::removeActiveStep);
+    }
+
+    private void forEachModelsContaining(StepOrder stepOrder, Consumer<SpawnedStepsModels> action) {
+        StepOrder step = stepOrder;
+        while (true) {
+            SpawnedStepsModels s = modelsBySpawnedStep.get(step);
+            if (s != null) {
+                action.accept(s);
+            }
+            Optional<StepOrder> parent = step.getParent();
+            if (parent.isEmpty()) {
+                return;
             }
+            step = parent.get();
         }
     }
 
@@ -84,8 +110,7 @@ public class StepAndDataRelationshipTracker {
         List<RelatedSteps> rsList = getAllRelatedStepsTo(finishedStep);
 
         for (RelatedSteps relatedSteps : rsList) {
-            boolean anyRelatedStepSeqStillActive = relatedSteps.getSpawnedStepsModels().getSteps().stream().anyMatch(activeStepsTracker::isPartOfActiveStepSequence);
-            if (anyRelatedStepSeqStillActive) {
+            if (relatedSteps.getSpawnedStepsModels().hasActiveSteps()) {
                 // cannot publish this data
                 log.debug("Cannot publish related data for finished step yet: {}", finishedStep);
             } else {
@@ -102,21 +127,15 @@ public class StepAndDataRelationshipTracker {
      *
      * @param step any child step that has finished and might have completed the whole step hierarchy for some data model ...
      */
-    @SuppressWarnings("OptionalIsPresent")
     List<RelatedSteps> getAllRelatedStepsTo(StepOrder step) {
         List<RelatedSteps> relatedSteps = new ArrayList<>();
-        StepOrder prevParent = step;
-        Optional<StepOrder> parent = step.getParent();
-        while (parent.isPresent()) {
-            SpawnedStepsModelsList sl = spawnedByParentStep.get(parent.get());
-            if (sl != null) {
-                Optional<SpawnedStepsModels> s = sl.getSpawnedContaining(prevParent);
-                if (s.isPresent()) {
-                    relatedSteps.add(new RelatedSteps(s.get()));
-                }
+        StepOrder spawned = step;
+        while (spawned.hasParent()) {
+            SpawnedStepsModels s = modelsBySpawnedStep.get(spawned);
+            if (s != null) {
+                relatedSteps.add(new RelatedSteps(s));
             }
-            prevParent = parent.get();
-            parent = parent.get().getParent();
+            spawned = spawned.getParent().get();
         }
         log.debug("relatedSteps for {} are : {}", step, relatedSteps);
         return relatedSteps;
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executions of the same step for consecutive sibling elements that get executed as one task. The first execution
+ * represents the whole batch in the executor, the others are executed right after it within the same task
+ */
+@ThreadSafe
+class StepBatch {
+
+    private final List<TaskDefinition> executions = new ArrayList<>();
+    private final AtomicInteger claimed = new AtomicInteger(1); // the first one is executed as the task itself
+
+    /**
+     * Called only while collecting the batch by the thread that collects it
+     */
+    boolean accepts(TaskDefinition taskDefinition) {
+        TaskDefinition first = getFirst();
+        return first.getStepHierarchyOrder().equals(taskDefinition.getStepHierarchyOrder())
+                && first.getStepOrder().getParent().equals(taskDefinition.getStepOrder().getParent());
+    }
+
+    /**
+     * Called only while collecting the batch by the thread that collects it
+     */
+    void add(TaskDefinition taskDefinition) {
+        executions.add(taskDefinition);
+    }
+
+    int size() {
+        return executions.size();
+    }
+
+    TaskDefinition getFirst() {
+        return executions.get(0);
+    }
+
+    /**
+     * @return the next execution following the first one or null if all have been claimed already
+     */
+    TaskDefinition claimNext() {
+        int idx = claimed.getAndIncrement();
+        return idx < executions.size() ? executions.get(idx) : null;
+    }
+
+    /**
+     * @return executions following the first one that have not been claimed yet. These will not be claimed anymore
+     */
+    List<TaskDefinition> claimRemaining() {
+        int from = Math.min(claimed.getAndSet(executions.size()), executions.size());
+        return new ArrayList<>(executions.subList(from, executions.size()));
+    }
+
+}
@@ -20,21 +20,69 @@ import com.github.scrape.flow.scraping.ClientType;
 import com.github.scrape.flow.scraping.ScrapingStep;
 import com.github.scrape.flow.scraping.ScrapingStepInternalAccessor;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.collections4.Trie;
-import org.apache.commons.collections4.trie.PatriciaTrie;
 
 import java.util.*;
 
 @Log4j2
 public class StepHierarchyRepository {
 
+    private static final ClientType[] CLIENT_TYPES = ClientType.values();
+
     private final Map<ScrapingStep<?>, StepMetadata> map;
-    private final Trie<String, StepMetadata> trie;
+
+    /**
+     * The hierarchy does not change once created so each step gets a dense id used to index the arrays below.
+     * Everything needed in the scheduling path is precomputed here so that lookups do not need to visit the sub-hierarchy
+     */
+    private final Map<StepOrder, Integer> stepIds;
+    private final StepMetadata[] metadataById;
+    private final int[][] longestLoadingPathDepthById;
+    private final int[][] remainingLoadingPathDepthById;
 
     StepHierarchyRepository(Map<ScrapingStep<?>, StepMetadata> map) {
         this.map = new LinkedHashMap<>(map);
-        this.trie = new PatriciaTrie<>();
-        map.values().forEach(sm -> this.trie.put(getTrieKey(sm), sm));
+        this.metadataById = map.values().stream()
+                .sorted(Comparator.comparing(StepMetadata::getStepHierarchyOrder, StepOrder.NATURAL_COMPARATOR))
+                .toArray(StepMetadata[]::new);
+        this.stepIds = new HashMap<>();
+        for (int id = 0; id < metadataById.length; id++) {
+            stepIds.put(metadataById[id].getStepHierarchyOrder(), id);
+        }
+        this.longestLoadingPathDepthById = calcLongestLoadingPathDepths();
+        this.remainingLoadingPathDepthById = calcRemainingLoadingPathDepths();
+    }
+
+    /**
+     * Steps are ordered naturally by their hierarchy order so children always come after their parents;
+     * iterating backwards lets each step pass its subtree's result to its parent
+     */
+    private int[][] calcLongestLoadingPathDepths() {
+        int[][] longest = new int[metadataById.length][CLIENT_TYPES.length];
+        for (int id = metadataById.length - 1; id >= 0; id--) {
+            StepMetadata sm = metadataById[id];
+            int ownCount = sm.getLoadingStepCountUpToThisStep(sm.getClientType());
+            int ct = sm.getClientType().ordinal();
+            longest[id][ct] = Math.max(longest[id][ct], ownCount);
+            Integer parentId = sm.getStepHierarchyOrder().getParent().map(stepIds::get).orElse(null);
+            if (parentId != null) {
+                for (int i = 0; i < CLIENT_TYPES.length; i++) {
+                    longest[parentId][i] = Math.max(longest[parentId][i], longest[id][i]);
+                }
+            }
+        }
+        return longest;
+    }
+
+    private int[][] calcRemainingLoadingPathDepths() {
+        int[][] remaining = new int[metadataById.length][CLIENT_TYPES.length];
+        for (int id = 0; id < metadataById.length; id++) {
+            StepMetadata sm = metadataById[id];
+            for (ClientType clientType : CLIENT_TYPES) {
+                int correction = clientType.equals(sm.getClientType()) && sm.getClientReservationType().isLoading() ? 1 : 0;
+                remaining[id][clientType.ordinal()] = longestLoadingPathDepthById[id][clientType.ordinal()] - sm.getLoadingStepCountUpToThisStep(clientType) + correction;
+            }
+        }
+        return remaining;
     }
 
     public static StepHierarchyRepository createFrom(ScrapingStep<?> firstStep) {
@@ -73,6 +121,13 @@ public class StepHierarchyRepository {
         return map.size();
     }
 
+    /**
+     * @return metadata of all steps in their hierarchy order
+     */
+    public List<StepMetadata> getAllMetadata() {
+        return Collections.unmodifiableList(Arrays.asList(metadataById));
+    }
+
     private static void print(ScrapingStep<?> parent,
                               StepOrder order,
                               int depth) {
@@ -115,12 +170,20 @@ public class StepHierarchyRepository {
         return builder.toString();
     }
 
+    public boolean contains(StepOrder hierarchyOrder) {
+        return stepIds.containsKey(hierarchyOrder);
+    }
+
     public StepMetadata getMetadataFor(StepOrder hierarchyOrder) {
-        StepMetadata stepMetadata = trie.get(getTrieKey(hierarchyOrder));
-        if (stepMetadata == null) {
+        return metadataById[getStepId(hierarchyOrder)];
+    }
+
+    private int getStepId(StepOrder hierarchyOrder) {
+        Integer id = stepIds.get(hierarchyOrder);
+        if (id == null) {
             throw new IllegalStateException("No metadata was found for hierarchyOrder " + hierarchyOrder);
         }
-        return stepMetadata;
+        return id;
     }
 
     public StepMetadata getMetadataFor(ScrapingStep<?> step) {
@@ -145,22 +208,14 @@ public class StepHierarchyRepository {
      * @param startingHierarchyOrder the depth will be calculated from this step onwards (inclusive)
      */
     int getRemainingLoadingPathDepth(StepOrder startingHierarchyOrder, ClientType clientType) {
-        StepMetadata startingMeta = this.trie.get(getTrieKey(startingHierarchyOrder));
-        int longestLoadingPath = findLongestLoadingPathDepth(startingHierarchyOrder, clientType);
-        int correction = clientType.equals(startingMeta.getClientType()) && startingMeta.getClientReservationType().isLoading() ? 1 : 0;
-        return longestLoadingPath - startingMeta.getLoadingStepCountUpToThisStep(clientType) + correction;
+        return remainingLoadingPathDepthById[getStepId(startingHierarchyOrder)][clientType.ordinal()];
     }
 
     /**
      * @param startingHierarchyOrder the depth will be calculated from this step onwards (inclusive)
      */
     int findLongestLoadingPathDepth(StepOrder startingHierarchyOrder, ClientType clientType) {
-        SortedMap<String, StepMetadata> subHierarchy = this.trie.prefixMap(getTrieKey(startingHierarchyOrder));
-        return subHierarchy.values().stream()
-                .filter(sm -> sm.getClientType().equals(clientType))
-                .max(StepMetadata.getComparatorByLoadingStepCount(clientType))
-                .map(stepMetadata -> stepMetadata.getLoadingStepCountUpToThisStep(clientType))
-                .orElse(0);
+        return longestLoadingPathDepthById[getStepId(startingHierarchyOrder)][clientType.ordinal()];
     }
 
     private static Map<ClientType, Integer> getLoadingStepCountBase(ScrapingStep<?> rootStep) {
@@ -210,12 +265,4 @@ public class StepHierarchyRepository {
         );
     }
 
-    private String getTrieKey(StepMetadata sm) {
-        return getTrieKey(sm.getStepHierarchyOrder());
-    }
-
-    private String getTrieKey(StepOrder hierarchyOrder) {
-        return hierarchyOrder.asString();
-    }
-
 }
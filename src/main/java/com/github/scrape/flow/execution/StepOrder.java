@@ -16,51 +16,54 @@
 
 package com.github.scrape.flow.execution;
 
-import java.util.*;
-import java.util.stream.Collectors;
-
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+
+/**
+ * Immutable position of a step in the hierarchy of executed steps.
+ * <p>
+ * Backed by a primitive array that may be shared with the step orders derived from it (parents and sub-orders
+ * are just shorter views of the same array), the hash is computed once upfront and comparisons do not allocate
+ * - instances of this class are compared and hashed on every dequeue, reservation check and publishing decision.
+ */
 public class StepOrder {
 
-    public static final StepOrder ROOT = new StepOrder(List.of(0));
+    public static final StepOrder ROOT = new StepOrder(new int[]{0}, 1);
 
     public static final Comparator<StepOrder> NATURAL_COMPARATOR = (so1, so2) -> {
-        for (int idx = 0; idx < Math.min(so1.size(), so2.size()); idx++) {
-            Integer sVal = so1.values.get(idx);
-            Integer bVal = so2.values.get(idx);
-            int compared = Integer.compare(sVal, bVal);
+        int minLength = Math.min(so1.length, so2.length);
+        for (int idx = 0; idx < minLength; idx++) {
+            int compared = Integer.compare(so1.values[idx], so2.values[idx]);
             if (compared != 0) {
                 return compared;
             }
         }
 
         // if we got here the StepOrder instances are either same length or they are equal up to the length of the smaller one
-        if (so1.size() == so2.size()) {
-          return 0;
-        } else if (so1.size() < so2.size()) {
-            return -1;
-        } else {
-            return 1;
-        }
+        return Integer.compare(so1.length, so2.length);
     };
 
     /**
-     * Contains a list of values where the idx of the value in the list represents the order of the step among steps at different levels in a hierarchy of steps.
-     * The value itself represents the order among steps as the same level of a hierarchy of steps
+     * Contains values where the idx of the value represents the order of the step among steps at different levels in a hierarchy of steps.
+     * The value itself represents the order among steps as the same level of a hierarchy of steps.
+     * Only the first {@link #length} values belong to this instance - the array can be shared with longer step orders and must never be modified.
      */
-    private final List<Integer> values = new ArrayList<>();
+    private final int[] values;
+    private final int length;
+    private final int hash;
+    private volatile String asString;
 
 
-    public static StepOrder from(Integer ... values) {
-        return new StepOrder(values);
+    public static StepOrder from(int... values) {
+        return new StepOrder(values.clone(), values.length);
     }
 
-    private StepOrder(Integer ... values) {
-        this(Arrays.asList(values));
-    }
-
-    private StepOrder(List<Integer> values) {
-        checkInvariants(values.size());
-        this.values.addAll(values); // important to create a copy!
+    private StepOrder(int[] values, int length) {
+        checkInvariants(length);
+        this.values = values;
+        this.length = length;
+        this.hash = computeHash(values, length);
     }
 
     private void checkInvariants(int length) {
@@ -69,32 +72,38 @@ public class StepOrder {
         }
     }
 
+    private static int computeHash(int[] values, int length) {
+        int result = 1;
+        for (int idx = 0; idx < length; idx++) {
+            result = 31 * result + values[idx];
+        }
+        return result;
+    }
+
     public Optional<StepOrder> getPrecedingSibling() {
         if (hasParent()) {
-            int lastIdx = values.size() - 1;
-            int lastValue = values.get(lastIdx);
+            int lastValue = getLastValue();
             if (lastValue > 1) {
-                int newLastValue = lastValue - 1;
-                StepOrder preceding = new StepOrder(values);
-                preceding.values.set(lastIdx, newLastValue);
-                return Optional.of(preceding);
+                return Optional.of(withLastValue(lastValue - 1));
             }
         }
         return Optional.empty();
     }
 
     public StepOrder getFollowingSibling() {
-        int lastIdx = values.size() - 1;
-        int newOrder = values.get(lastIdx) + 1;
-        StepOrder next = new StepOrder(values);
-        next.values.set(lastIdx, newOrder);
-        return next;
+        return withLastValue(getLastValue() + 1);
+    }
+
+    private StepOrder withLastValue(int lastValue) {
+        int[] copy = Arrays.copyOf(values, length);
+        copy[length - 1] = lastValue;
+        return new StepOrder(copy, length);
     }
 
     public StepOrder getFirstChild() {
-        StepOrder next = new StepOrder(values);
-        next.values.add(1);
-        return next;
+        int[] copy = Arrays.copyOf(values, length + 1);
+        copy[length] = 1;
+        return new StepOrder(copy, length + 1);
     }
 
     boolean hasParent() {
@@ -103,20 +112,13 @@ public class StepOrder {
 
     public Optional<StepOrder> getParent() {
         if (hasParent()) {
-            StepOrder parent = new StepOrder(values.subList(0, values.size() - 1));
-            return Optional.of(parent);
+            return Optional.of(new StepOrder(values, length - 1));
         }
         return Optional.empty();
     }
 
     public boolean isParentOf(StepOrder other) {
-        if (other.size() > this.size()) {
-            Optional<StepOrder> subOrder = other.getSubOrder(size());
-            if (subOrder.isPresent()) {
-                return this.equals(subOrder.get());
-            }
-        }
-        return false;
+        return other.length > this.length && hasSamePrefix(other, this.length);
     }
 
     Optional<StepOrder> getSubOrder(int valuesToInclude) {
@@ -128,10 +130,22 @@ public class StepOrder {
         } else if (size() == valuesToInclude) {
             return Optional.of(this);
         } else {
-            return Optional.of(new StepOrder(this.values.subList(0, valuesToInclude)));
+            return Optional.of(new StepOrder(values, valuesToInclude));
         }
     }
 
+    private boolean hasSamePrefix(StepOrder other, int prefixLength) {
+        if (this.values == other.values) {
+            return true;
+        }
+        for (int idx = 0; idx < prefixLength; idx++) {
+            if (this.values[idx] != other.values[idx]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean isBefore(StepOrder other) {
         return NATURAL_COMPARATOR.compare(this, other) < 0;
     }
@@ -141,25 +155,46 @@ public class StepOrder {
     }
 
     public int size() {
-        return this.values.size();
+        return length;
+    }
+
+    int getValue(int idx) {
+        if (idx >= length) {
+            throw new IndexOutOfBoundsException("Index " + idx + " out of bounds for length " + length);
+        }
+        return values[idx];
+    }
+
+    private int getLastValue() {
+        return values[length - 1];
     }
 
-    // error-prone having this as a field ... review methods modifying the list before doinf so ...
     public String asString() {
-        return this.values.stream().map(Object::toString).collect(Collectors.joining("-", "", "-")); // IMPORTANT - the suffix is needed for prefix matching to work when tracking active steps/tasks...
+        String str = asString;
+        if (str == null) {
+            StringBuilder sb = new StringBuilder(length * 3);
+            for (int idx = 0; idx < length; idx++) {
+                sb.append(values[idx]).append('-'); // IMPORTANT - the suffix is needed for prefix matching to work when tracking active steps/tasks...
+            }
+            str = sb.toString();
+            asString = str;
+        }
+        return str;
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof StepOrder)) return false;
-        StepOrder stepOrder = (StepOrder) o;
-        return Objects.equals(values, stepOrder.values);
+        StepOrder other = (StepOrder) o;
+        return this.hash == other.hash
+                && this.length == other.length
+                && hasSamePrefix(other, length);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(values);
+        return hash;
     }
 
     @Override
@@ -18,6 +18,7 @@ package com.github.scrape.flow.execution;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 public class StepOrderGenerator {
 
@@ -37,4 +38,24 @@ public class StepOrderGenerator {
         });
     }
 
+    /**
+     * Children are only ever generated by steps executing within the subtree of their parent - once the whole subtree
+     * of a step has finished its counter will not be needed again. Releases the counters of the finished step
+     * and of its ancestors whose subtrees have finished with it, so that the memory used tracks live work only.
+     * The root counter is kept.
+     *
+     * @param isPartOfActiveStepSequence tells if a step or any of its descendants is still active
+     */
+    public void releaseFinished(StepOrder finishedStep, Predicate<StepOrder> isPartOfActiveStepSequence) {
+        StepOrder stepOrder = finishedStep;
+        while (stepOrder.hasParent() && !isPartOfActiveStepSequence.test(stepOrder)) {
+            parentToLastGeneratedChild.remove(stepOrder);
+            stepOrder = stepOrder.getParent().orElseThrow();
+        }
+    }
+
+    int size() {
+        return parentToLastGeneratedChild.size();
+    }
+
 }
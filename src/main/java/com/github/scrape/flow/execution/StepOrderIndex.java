@@ -0,0 +1,272 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tree-structured index of values keyed by {@link StepOrder}, one tree level per step order segment.
+ * <p>
+ * Lookups and modifications take O(depth) and each node keeps the number of values stored in its subtree,
+ * so checking whether a step or any of its descendants is present does not need to visit the descendants.
+ * Replaces String keyed tries which required building a key for every single lookup.
+ */
+@NotThreadSafe
+public class StepOrderIndex<V> {
+
+    private final Node<V> root = new Node<>(0);
+
+    public V get(StepOrder stepOrder) {
+        Node<V> node = findNode(stepOrder);
+        return node != null ? node.value : null;
+    }
+
+    public boolean contains(StepOrder stepOrder) {
+        return get(stepOrder) != null;
+    }
+
+    /**
+     * @return the previous value stored for the given step order or null if there was none
+     */
+    public V put(StepOrder stepOrder, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        Node<V> node = root;
+        Node<V>[] path = newPath(stepOrder);
+        for (int idx = 0; idx < stepOrder.size(); idx++) {
+            path[idx] = node;
+            node = node.getOrCreateChild(stepOrder.getValue(idx));
+        }
+        V previous = node.value;
+        node.value = value;
+        if (previous == null) {
+            node.subtreeCount++;
+            for (Node<V> ancestor : path) {
+                ancestor.subtreeCount++;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * @return the removed value or null if there was no value stored for the given step order
+     */
+    public V remove(StepOrder stepOrder) {
+        Node<V>[] path = newPath(stepOrder);
+        Node<V> node = root;
+        for (int idx = 0; idx < stepOrder.size(); idx++) {
+            path[idx] = node;
+            node = node.getChild(stepOrder.getValue(idx));
+            if (node == null) {
+                return null;
+            }
+        }
+        V removed = node.value;
+        if (removed != null) {
+            node.value = null;
+            node.subtreeCount--;
+            for (int idx = path.length - 1; idx >= 0; idx--) {
+                Node<V> parent = path[idx];
+                parent.subtreeCount--;
+                if (node.subtreeCount == 0) {
+                    parent.removeChild(node.key);
+                }
+                node = parent;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return true if a value is stored for the given step order or any of its descendants
+     */
+    public boolean containsSubtree(StepOrder stepOrder) {
+        return subtreeCount(stepOrder) > 0;
+    }
+
+    /**
+     * @return the number of values stored for the given step order and all its descendants
+     */
+    public int subtreeCount(StepOrder stepOrder) {
+        Node<V> node = findNode(stepOrder);
+        return node != null ? node.subtreeCount : 0;
+    }
+
+    /**
+     * @return values stored for the given step order and all its descendants in {@link StepOrder#NATURAL_COMPARATOR} order
+     */
+    public List<V> getSubtreeValues(StepOrder stepOrder) {
+        Node<V> node = findNode(stepOrder);
+        if (node == null) {
+            return new ArrayList<>();
+        }
+        List<V> values = new ArrayList<>(node.subtreeCount);
+        collectValues(node, values);
+        return values;
+    }
+
+    public int size() {
+        return root.subtreeCount;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        root.clearChildren();
+        root.subtreeCount = 0;
+    }
+
+    private Node<V> findNode(StepOrder stepOrder) {
+        Node<V> node = root;
+        for (int idx = 0; idx < stepOrder.size() && node != null; idx++) {
+            node = node.getChild(stepOrder.getValue(idx));
+        }
+        return node;
+    }
+
+    private static <V> void collectValues(Node<V> node, List<V> values) {
+        if (node.value != null) {
+            values.add(node.value);
+        }
+        for (int idx = node.first; idx < node.first + node.childCount; idx++) {
+            collectValues(node.children[idx], values);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<V>[] newPath(StepOrder stepOrder) {
+        return (Node<V>[]) new Node<?>[stepOrder.size()];
+    }
+
+
+    /**
+     * Children are kept in arrays sorted by key - step orders are mostly generated in increasing order
+     * so new children are usually just appended at the end. Finished steps are mostly the first children
+     * so these are removed by moving the start of the children instead of shifting the remaining ones.
+     */
+    private static class Node<V> {
+
+        private static final int[] NO_KEYS = new int[0];
+
+        private final int key;
+        private V value;
+        private int subtreeCount;
+        private int[] childKeys = NO_KEYS;
+        private Node<V>[] children;
+        // children are stored at indexes [first, first + childCount)
+        private int first;
+        private int childCount;
+
+        Node(int key) {
+            this.key = key;
+        }
+
+        Node<V> getChild(int key) {
+            int idx = indexOf(key);
+            return idx >= 0 ? children[idx] : null;
+        }
+
+        Node<V> getOrCreateChild(int key) {
+            int idx = indexOf(key);
+            if (idx >= 0) {
+                return children[idx];
+            }
+            int insertAt = -(idx + 1);
+            if (first + childCount == childKeys.length) {
+                int shift = first;
+                makeRoomAtEnd();
+                insertAt -= shift;
+            }
+            int end = first + childCount;
+            System.arraycopy(childKeys, insertAt, childKeys, insertAt + 1, end - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, end - insertAt);
+            Node<V> child = new Node<>(key);
+            childKeys[insertAt] = key;
+            children[insertAt] = child;
+            childCount++;
+            return child;
+        }
+
+        void removeChild(int key) {
+            int idx = indexOf(key);
+            if (idx < 0) {
+                return;
+            }
+            int end = first + childCount;
+            if (idx - first < end - idx - 1) {
+                // closer to the start -> the preceding children are shifted
+                System.arraycopy(childKeys, first, childKeys, first + 1, idx - first);
+                System.arraycopy(children, first, children, first + 1, idx - first);
+                children[first] = null;
+                first++;
+            } else {
+                System.arraycopy(childKeys, idx + 1, childKeys, idx, end - idx - 1);
+                System.arraycopy(children, idx + 1, children, idx, end - idx - 1);
+                children[end - 1] = null;
+            }
+            childCount--;
+            if (childCount == 0) {
+                first = 0;
+            }
+        }
+
+        void clearChildren() {
+            childKeys = NO_KEYS;
+            children = null;
+            first = 0;
+            childCount = 0;
+        }
+
+        private int indexOf(int key) {
+            return Arrays.binarySearch(childKeys, first, first + childCount, key);
+        }
+
+        /**
+         * Moves the children to the start of the arrays - these are reused if at least half of them is free, otherwise grown
+         */
+        private void makeRoomAtEnd() {
+            if (childCount < childKeys.length / 2) {
+                System.arraycopy(childKeys, first, childKeys, 0, childCount);
+                System.arraycopy(children, first, children, 0, childCount);
+                Arrays.fill(children, childCount, children.length, null);
+            } else {
+                int newCapacity = Math.max(4, childCount * 2);
+                int[] newKeys = new int[newCapacity];
+                Node<V>[] newChildren = newChildren(newCapacity);
+                System.arraycopy(childKeys, first, newKeys, 0, childCount);
+                if (children != null) {
+                    System.arraycopy(children, first, newChildren, 0, childCount);
+                }
+                childKeys = newKeys;
+                children = newChildren;
+            }
+            first = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newChildren(int capacity) {
+            return (Node<V>[]) new Node<?>[capacity];
+        }
+    }
+
+}
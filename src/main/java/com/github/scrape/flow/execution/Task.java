@@ -14,65 +14,100 @@
  * limitations under the License.
  */
 
+
 package com.github.scrape.flow.execution;
 
 import com.github.scrape.flow.clients.ClientReservationRequest;
 import com.github.scrape.flow.clients.ClientReservationType;
 import com.github.scrape.flow.scraping.ClientType;
-import lombok.Data;
+import lombok.Getter;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.Comparator;
 
-@Data
+/**
+ * A submitted execution of a step. Kept small as one is created for each element a step processes - the properties
+ * that are the same for all tasks of a step are shared through its {@link TaskProfile}
+ */
+@Getter
 public class Task implements Comparable<Task> {
 
     public static Comparator<Task> NATURAL_COMPARATOR = (st1, st2) -> {
         return StepOrder.NATURAL_COMPARATOR.compare(st1.stepOrder, st2.stepOrder);
     };
 
+    private final TaskProfile profile;
     private final StepOrder stepOrder;
-    private final StepOrder stepHierarchyOrder;
+    private final Runnable stepRunnable;
 
     /**
-     * Tasks with this setting will be executed with priority
-     * The implementation should effectively disable the execution of
-     * tasks with subsequent stepOrder values which have with
-     * exclusive = false for the time exclusive tasks are running.
+     * Host the task makes requests to. Null for tasks that do not make requests or where the host is not known
      */
-    private final boolean exclusiveExecution;
-
-    private final String stepName;
-    private final Runnable stepRunnable;
-    private final boolean throttlingAllowed;
-    private final boolean makingHttpRequests;
-    private final ClientType clientType;
-    private final ClientReservationType clientReservationType;
+    private final String host;
 
     private final int maxRetries;
     private final Duration retryBackoff;
 
-    private final LocalDateTime created = LocalDateTime.now();
+    /**
+     * Checked repeatedly while the task waits for its client so it is created only once
+     */
+    private final ClientReservationRequest clientReservationRequest;
+
+    // System.nanoTime() at creation
+    private final long createdNanos = System.nanoTime();
+
+    public Task(TaskProfile profile, StepOrder stepOrder, Runnable stepRunnable, String host, int maxRetries, Duration retryBackoff) {
+        this.profile = profile;
+        this.stepOrder = stepOrder;
+        this.stepRunnable = stepRunnable;
+        this.host = host;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.clientReservationRequest = new ClientReservationRequest(stepOrder, profile.getClientReservationType(), profile.getClientType());
+    }
 
     public static Task from(TaskDefinition basis, int retries, Duration retryBackoff) {
-        return new Task(
-                basis.getStepOrder(),
-                basis.getStepHierarchyOrder(),
-                basis.isExclusiveExecution(),
-                basis.getStepName(),
-                basis.getStepRunnable(),
-                basis.isThrottlingAllowed(),
-                basis.isMakingHttpRequests(),
-                basis.getClientType(),
-                basis.getClientReservationType(),
-                retries,
-                retryBackoff
-        );
+        return from(basis, basis.getStepRunnable(), retries, retryBackoff);
+    }
+
+    public static Task from(TaskDefinition basis, Runnable stepRunnable, int retries, Duration retryBackoff) {
+        return new Task(basis.getProfile(), basis.getStepOrder(), stepRunnable, basis.getHost(), retries, retryBackoff);
+    }
+
+    public StepOrder getStepHierarchyOrder() {
+        return profile.getStepHierarchyOrder();
+    }
+
+    public boolean isExclusiveExecution() {
+        return profile.isExclusiveExecution();
     }
 
-    public ClientReservationRequest getClientReservationRequest() {
-        return new ClientReservationRequest(stepOrder, clientReservationType, clientType);
+    public String getStepName() {
+        return profile.getStepName();
+    }
+
+    public boolean isThrottlingAllowed() {
+        return profile.isThrottlingAllowed();
+    }
+
+    public boolean isMakingHttpRequests() {
+        return profile.isMakingHttpRequests();
+    }
+
+    public ClientType getClientType() {
+        return profile.getClientType();
+    }
+
+    public ClientReservationType getClientReservationType() {
+        return profile.getClientReservationType();
+    }
+
+    public Duration getExecutionTimeout() {
+        return profile.getExecutionTimeout();
+    }
+
+    public boolean isDeferredExpansion() {
+        return profile.isDeferredExpansion();
     }
 
     @Override
@@ -80,13 +115,17 @@ public class Task implements Comparable<Task> {
         return NATURAL_COMPARATOR.compare(this, o);
     }
 
-    public String loggingInfo() {
+    /**
+     * Built only when actually logged - pass the task itself to the logger instead of calling this eagerly
+     */
+    @Override
+    public String toString() {
         return "StepTask{" +
                 "stepOrder=" + stepOrder +
-                ", stepHierarchyOrder=" + stepHierarchyOrder +
-                ", exclusiveExecution=" + exclusiveExecution +
-                ", stepName='" + stepName + '\'' +
-                ", created=" + created +
+                ", stepHierarchyOrder=" + getStepHierarchyOrder() +
+                ", exclusiveExecution=" + isExclusiveExecution() +
+                ", stepName='" + getStepName() + '\'' +
+                ", ageMillis=" + (System.nanoTime() - createdNanos) / 1_000_000 +
                 '}';
     }
 
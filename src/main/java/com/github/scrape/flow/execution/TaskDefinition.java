@@ -14,32 +14,75 @@
  * limitations under the License.
  */
 
+
 package com.github.scrape.flow.execution;
 
 import com.github.scrape.flow.clients.ClientReservationType;
 import com.github.scrape.flow.scraping.ClientType;
-import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
 
+import java.time.Duration;
 
-@Data
+/**
+ * One execution of a step to be submitted as a task. The properties shared by all executions of the step are kept in its {@link TaskProfile}
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
 public class TaskDefinition {
 
-    private final StepOrder stepHierarchyOrder;
+    private final TaskProfile profile;
     private final StepOrder stepOrder;
+    private final Runnable stepRunnable;
 
     /**
-     * Tasks with this setting will be executed with priority
-     * The implementation should effectively disable the execution of
-     * tasks with subsequent stepOrder values which have with
-     * exclusive = false for the time exclusive tasks are running.
+     * Host the task makes requests to. Null for tasks that do not make requests or where the host is not known
      */
-    private final boolean exclusiveExecution;
+    private final String host;
 
-    private final String stepName;
-    private final Runnable stepRunnable;
-    private final boolean throttlingAllowed;
-    private final boolean makingHttpRequests;
-    private final ClientType clientType;
-    private final ClientReservationType clientReservationType;
+    public StepOrder getStepHierarchyOrder() {
+        return profile.getStepHierarchyOrder();
+    }
+
+    public boolean isExclusiveExecution() {
+        return profile.isExclusiveExecution();
+    }
+
+    public String getStepName() {
+        return profile.getStepName();
+    }
+
+    public boolean isThrottlingAllowed() {
+        return profile.isThrottlingAllowed();
+    }
+
+    public boolean isMakingHttpRequests() {
+        return profile.isMakingHttpRequests();
+    }
+
+    public ClientType getClientType() {
+        return profile.getClientType();
+    }
+
+    public ClientReservationType getClientReservationType() {
+        return profile.getClientReservationType();
+    }
+
+    public Duration getExecutionTimeout() {
+        return profile.getExecutionTimeout();
+    }
+
+    public boolean isDeferredExpansion() {
+        return profile.isDeferredExpansion();
+    }
+
+    /**
+     * @see TaskProfile#isFusable()
+     */
+    public boolean isFusable() {
+        return profile.isFusable();
+    }
 
 }
@@ -25,4 +25,20 @@ public interface TaskExecutor {
 
     boolean awaitCompletion(Duration timeout);
 
+    /**
+     * Cancels all queued and executing tasks. Tasks submitted afterwards are rejected.
+     * The error consumers of all cancelled tasks are notified
+     */
+    void cancelAll();
+
+    /**
+     * @return true if the number of queued tasks reached the configured maximum
+     */
+    boolean isQueueFull();
+
+    /**
+     * Loading tasks are held back while the given backpressure pauses loading
+     */
+    void setLoadingBackpressure(LoadingBackpressure loadingBackpressure);
+
 }
@@ -0,0 +1,786 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientAccessManager;
+import com.github.scrape.flow.clients.ClientId;
+import com.github.scrape.flow.scraping.ExpansionMode;
+import com.github.scrape.flow.scraping.Options;
+import com.github.scrape.flow.scraping.TraversalStrategy;
+import com.github.scrape.flow.throttling.ScrapingRateLimiter;
+import lombok.extern.log4j.Log4j2;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Execution of tasks shared by all executor implementations. Implementations decide how tasks are distributed into {@link TaskLane}s
+ * and in which order the lanes are dispatched from.
+ * <p>
+ * Dispatching of queued tasks is event driven - it is triggered by every state change that can make a waiting task executable
+ * (new task submitted, task finished, client reservation released, step untracked). The only timer used is the one armed for the
+ * moment when a rate limiter will allow the next request.
+ * <p>
+ * Submitted tasks are put into a lock-free queue and admitted into their lanes by the dispatcher. Only one thread dispatches at a time -
+ * threads that trigger dispatching while it is in progress do not wait, they only request another round from the current dispatcher.
+ * Task callbacks are never executed by the dispatcher.
+ */
+@Log4j2
+public abstract class TaskExecutorBase implements TaskExecutor {
+
+    public static final long COMPLETION_CHECK_FREQUENCY_MILLIS = 100L;
+    private static final Duration MIN_WAKE_UP_DELAY = Duration.ofMillis(1);
+    // states of the execution of a time-limited task
+    private static final int NOT_STARTED = 0;
+    private static final int RUNNING = 1;
+    private static final int STOPPED = 2;
+    // the least time a timed out execution gets to stop before its client gets restarted
+    private static final Duration ABANDON_AFTER_MIN = Duration.ofSeconds(1);
+    private final ExclusiveExecutionHandler exclusiveExecutionHandler;
+    private final ActiveStepsTracker activeStepsTracker;
+    private final AtomicInteger activeTaskCount = new AtomicInteger(0);
+    private final Supplier<LocalDateTime> nowSupplier;
+    private final ClientAccessManager clientAccessManager;
+    private final Options options;
+    private final ClientSchedulers clientSchedulers = new ClientSchedulers();
+    // subscriptions of the executing tasks so that they can be cancelled
+    private final Map<StepOrder, Disposable.Swap> executingTasks = new ConcurrentHashMap<>();
+    private volatile boolean cancelled = false;
+    private volatile LoadingBackpressure loadingBackpressure = LoadingBackpressure.NONE;
+
+    // submitted tasks not yet admitted into lanes by the dispatcher
+    private final Queue<QueuedTask> submissions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger submissionCount = new AtomicInteger(0);
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean(false);
+    // events since the last dispatching round that can unblock queued tasks waiting for them
+    private final Queue<StepOrder> finishedSteps = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean clientReleased = new AtomicBoolean(false);
+
+    private long lastActivatedReservation = 0L;
+    private long lastLoggedNoProgress = 0L;
+
+    // the single pending wake-up for the next known rate limiter deadline; guarded by the dispatchLock
+    private Disposable scheduledWakeUp;
+    private LocalDateTime scheduledWakeUpTime;
+
+    protected TaskExecutorBase(Supplier<LocalDateTime> nowSupplier,
+                               ExclusiveExecutionHandler exclusiveExecutionHandler,
+                               ActiveStepsTracker activeStepsTracker,
+                               ClientAccessManager clientAccessManager,
+                               Options options) {
+        this.nowSupplier = nowSupplier;
+        this.exclusiveExecutionHandler = exclusiveExecutionHandler;
+        this.activeStepsTracker = activeStepsTracker;
+        this.clientAccessManager = clientAccessManager;
+        this.options = options;
+        activeStepsTracker.addListener(new ActiveStepsListener() {
+            @Override
+            public void stepTracked(StepOrder stepOrder) {
+            }
+
+            @Override
+            public void stepUntracked(StepOrder stepOrder) {
+                // the client reservations of steps are finished before the steps are untracked
+                finishedSteps.offer(stepOrder);
+                clientReleased.set(true);
+            }
+        });
+    }
+
+    @Override
+    public void submit(Task task,
+                       Consumer<TaskResult> taskResultConsumer,
+                       Consumer<TaskError> taskErrorConsumer) {
+        if (cancelled) {
+            log.debug("{} - rejected - the execution was cancelled", task);
+            notifyOnErrorCallback(task, taskErrorConsumer, newCancellationException());
+            return;
+        }
+        // made right away - the submitting step's client must not get released before its child's reservation is known
+        clientAccessManager.makeReservationPlaceholder(task.getClientReservationRequest());
+        submissions.offer(new QueuedTask(task, taskResultConsumer, taskErrorConsumer, System.nanoTime()));
+        submissionCount.incrementAndGet();
+        dequeueNextAndExecute();
+    }
+
+    /**
+     * Can be called from any thread. If another thread is dispatching at the moment it gets to do another round instead
+     * so that the calling thread never blocks
+     */
+    protected void dequeueNextAndExecute() {
+        dispatchRequested.set(true);
+        if (dispatchLock.isHeldByCurrentThread()) {
+            return; // triggered from within dispatching -> the running round loop picks it up
+        }
+        while (dispatchRequested.get() && dispatchLock.tryLock()) {
+            List<QueuedTask> rejected;
+            try {
+                dispatchRequested.set(false);
+                rejected = admitSubmissions();
+                if (!cancelled) {
+                    recheckTasksWaitingForEvents();
+                    dispatchAll();
+                }
+            } catch (Exception e) {
+                log.error("Error executing next task!", e);
+                rejected = List.of();
+            } finally {
+                dispatchLock.unlock();
+            }
+            rejected.forEach(qt -> notifyOnErrorCallback(qt.getTask(), qt.getTaskErrorConsumer(), newCancellationException()));
+        }
+    }
+
+    /**
+     * Called by the dispatcher only
+     *
+     * @return tasks rejected because the execution was cancelled before they got admitted
+     */
+    private List<QueuedTask> admitSubmissions() {
+        List<QueuedTask> rejected = new ArrayList<>(0);
+        QueuedTask next;
+        while ((next = submissions.poll()) != null) {
+            submissionCount.decrementAndGet();
+            if (cancelled) {
+                rejected.add(next);
+                continue;
+            }
+            Task task = next.getTask();
+            TaskLane lane = laneFor(task);
+            lane.getQueue().add(next);
+            log.trace("New enqueued request info: {} in {}", task, lane);
+        }
+        logEnqueuedRequestCount();
+        return rejected;
+    }
+
+    /**
+     * Called by the dispatcher only. Marks the tasks blocked until a step finishes or a client gets released to be re-checked
+     * if such an event happened since the last dispatching round
+     */
+    private void recheckTasksWaitingForEvents() {
+        boolean released = clientReleased.getAndSet(false);
+        List<StepOrder> finished = new ArrayList<>();
+        StepOrder next;
+        while ((next = finishedSteps.poll()) != null) {
+            finished.add(next);
+        }
+        if (!released && finished.isEmpty()) {
+            return;
+        }
+        for (TaskLane lane : getDispatchableLanes()) {
+            SkipAheadTaskQueue queue = lane.getQueue();
+            if (queue.blockedGroupCount() == 0) {
+                continue;
+            }
+            if (released) {
+                queue.recheckAll(BlockingReason.CLIENT_UNAVAILABLE);
+            }
+            for (StepOrder stepOrder : finished) {
+                queue.recheck(BlockingReason.PARENT_ACTIVE, stepOrder);
+                // exclusive siblings wait until the whole subtree of their preceding sibling finishes
+                for (StepOrder s = stepOrder; s != null; s = s.getParent().orElse(null)) {
+                    queue.recheck(BlockingReason.EXCLUSIVE_SIBLING_ACTIVE, s);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by the dispatcher only
+     *
+     * @return the lane the given task is to be queued in
+     */
+    protected abstract TaskLane laneFor(Task task);
+
+    /**
+     * Called by the dispatcher only. Should dispatch all tasks that can currently be executed by calling {@link #dispatchNextFrom(TaskLane)}
+     */
+    protected abstract void dispatchAll();
+
+    /**
+     * Called by the dispatcher only
+     *
+     * @return all lanes that can have queued tasks
+     */
+    protected abstract Iterable<TaskLane> getDispatchableLanes();
+
+    /**
+     * Can be called from any thread
+     *
+     * @return count of tasks queued in lanes
+     */
+    protected abstract int queuedTaskCount();
+
+    /**
+     * Called by the dispatcher only. Removes all queued tasks
+     *
+     * @return the removed tasks
+     */
+    protected abstract List<QueuedTask> drainQueues();
+
+    /**
+     * @return count of all tasks waiting for execution including those that have not been admitted into a lane yet
+     */
+    private int waitingTaskCount() {
+        return submissionCount.get() + queuedTaskCount();
+    }
+
+    /**
+     * Called by the dispatcher only. Blocked tasks are set aside so that they do not hold up executable tasks queued behind them
+     *
+     * @return true if the first executable task of the lane was dispatched for execution
+     */
+    protected boolean dispatchNextFrom(TaskLane lane) {
+        SkipAheadTaskQueue queue = lane.getQueue();
+        queue.releaseUnblocked((reason, blockedBy, head) -> isUnblocked(reason, blockedBy, head, lane));
+        if (dispatchFirstExecutable(queue, lane, false)) {
+            return true;
+        }
+        // nothing else can be executed -> time to expand the next element of a lazily expanded step
+        return queue.releaseFirst(BlockingReason.AWAITING_IDLE_LANE) && dispatchFirstExecutable(queue, lane, true);
+    }
+
+    private boolean dispatchFirstExecutable(SkipAheadTaskQueue queue, TaskLane lane, boolean laneIdle) {
+        QueuedTask next;
+        while ((next = queue.pollCandidate()) != null) {
+            BlockingReason reason = getBlockingReason(next, lane, laneIdle);
+            if (reason == BlockingReason.NONE) {
+                Optional<ClientId> clientId = clientAccessManager.activateReservation(next.getTask().getClientReservationRequest());
+                lane.getExecutingTasksTracker().track(next.getTask());
+                executeTaskAsync(next.getTask(),
+                        clientId,
+                        lane,
+                        next.getTaskResultConsumer(),
+                        next.getTaskErrorConsumer(),
+                        next.getEnqueuedNanos()
+                );
+                return true;
+            }
+            queue.park(next, reason, getBlockedBy(next.getTask(), reason));
+        }
+        return false;
+    }
+
+    /**
+     * Non-throttlable tasks can proceed without limits. Throttlable tasks need to be limited in terms of how many are executed in parallel.
+     * The rate limit is checked last as a successful check consumes the permit for the request
+     */
+    private BlockingReason getBlockingReason(QueuedTask next, TaskLane lane, boolean laneIdle) {
+        Task task = next.getTask();
+        if (task.isDeferredExpansion()) {
+            if (!canExpandFurther()) {
+                return BlockingReason.QUEUE_FULL;
+            }
+            if (!laneIdle && options.getExpansionMode() == ExpansionMode.LAZY) {
+                return BlockingReason.AWAITING_IDLE_LANE;
+            }
+        }
+        if (!isParentTaskFinished(task)) {
+            return BlockingReason.PARENT_ACTIVE;
+        }
+        if (!exclusiveExecutionHandler.canExecute(next)) {
+            return BlockingReason.EXCLUSIVE_SIBLING_ACTIVE;
+        }
+        if (!lane.isWithinConcurrencyLimit()) {
+            return BlockingReason.CONCURRENCY_LIMIT;
+        }
+        if (task.isThrottlingAllowed() && !lane.isWithinThrottlingLimit()) {
+            return BlockingReason.THROTTLING_LIMIT;
+        }
+        if (task.getClientReservationType().isLoading() && !isWithinOpenPagesLimit()) {
+            return BlockingReason.OPEN_PAGES_LIMIT;
+        }
+        if (task.getClientReservationType().isLoading() && loadingBackpressure.isLoadingPaused()) {
+            return BlockingReason.BACKPRESSURE;
+        }
+        if (!canActivateReservation(task)) {
+            return BlockingReason.CLIENT_UNAVAILABLE;
+        }
+        if (!isWithinRateLimit(task, lane)) {
+            return BlockingReason.RATE_LIMIT;
+        }
+        return BlockingReason.NONE;
+    }
+
+    /**
+     * @return the key grouping tasks that get unblocked by the same event
+     */
+    private Object getBlockedBy(Task task, BlockingReason reason) {
+        switch (reason) {
+            case PARENT_ACTIVE:
+                return task.getStepOrder().getParent().orElse(null);
+            case EXCLUSIVE_SIBLING_ACTIVE:
+                return task.getStepOrder().getPrecedingSibling().orElse(null);
+            case CLIENT_UNAVAILABLE:
+                // loading tasks wait for any free client of their type, the others for the client of their parent step
+                if (task.getClientReservationType().isLoading()) {
+                    return task.getClientType();
+                }
+                return clientAccessManager.getClientId(task.getStepOrder()).orElse(null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Called for the first task of a group of blocked tasks. Must not have side effects on the scraping limits
+     */
+    private boolean isUnblocked(BlockingReason reason, Object blockedBy, QueuedTask head, TaskLane lane) {
+        switch (reason) {
+            case QUEUE_FULL:
+                return canExpandFurther();
+            case AWAITING_IDLE_LANE:
+                return options.getExpansionMode() != ExpansionMode.LAZY; // otherwise released only when nothing else can be executed
+            case PARENT_ACTIVE:
+                return !activeStepsTracker.isActive((StepOrder) blockedBy);
+            case EXCLUSIVE_SIBLING_ACTIVE:
+                return !activeStepsTracker.isPartOfActiveStepSequence((StepOrder) blockedBy);
+            case CONCURRENCY_LIMIT:
+                return lane.isWithinConcurrencyLimit();
+            case THROTTLING_LIMIT:
+                return lane.isWithinThrottlingLimit();
+            case RATE_LIMIT:
+                return !nowSupplier.get().isBefore(lane.getScrapingRateLimiter().getNextRequestAllowedTime());
+            case OPEN_PAGES_LIMIT:
+                return isWithinOpenPagesLimit();
+            case BACKPRESSURE:
+                return !loadingBackpressure.isLoadingPaused();
+            case CLIENT_UNAVAILABLE:
+                return clientAccessManager.canActivateReservation(head.getTask().getClientReservationRequest());
+            default:
+                return true;
+        }
+    }
+
+    protected LocalDateTime now() {
+        return nowSupplier.get();
+    }
+
+    /**
+     * @return the ordering of queued tasks according to the currently configured traversal strategy
+     */
+    protected Comparator<QueuedTask> getTaskOrdering() {
+        return TaskOrderings.forStrategy(options.getTraversalStrategy());
+    }
+
+    private boolean isWithinOpenPagesLimit() {
+        return options.getTraversalStrategy() != TraversalStrategy.HYBRID
+                || clientAccessManager.reservedClientsCount() < options.getMaxOpenPages();
+    }
+
+    /**
+     * When nothing is executing, the queued tasks can only be waiting for the clients held by deferred expansions
+     * so these need to be let through even if the queue is full
+     */
+    private boolean canExpandFurther() {
+        return !isQueueFull() || activeTaskCount.get() == 0;
+    }
+
+    @Override
+    public boolean isQueueFull() {
+        return waitingTaskCount() >= options.getMaxQueuedTasks();
+    }
+
+    @Override
+    public void setLoadingBackpressure(LoadingBackpressure loadingBackpressure) {
+        this.loadingBackpressure = loadingBackpressure;
+        loadingBackpressure.addResumeListener(this::dequeueNextAndExecute);
+    }
+
+    private boolean isParentTaskFinished(Task task) {
+        // super important that children do not skip parent tasks ... issues that are hard to debug ...
+        return task.getStepOrder().getParent().map(pt -> !activeStepsTracker.isActive(pt)).orElse(true);
+    }
+
+    // called outside the dispatcher for retries which wait for the rate limiter on their own
+    private boolean isWithinScrapingLimits(Task task, TaskLane lane) {
+        return acquireRequestPermit(task, lane)
+                && (!task.isThrottlingAllowed() || lane.isWithinThrottlingLimit());
+    }
+
+    private boolean isWithinRateLimit(Task task, TaskLane lane) {
+        if (acquireRequestPermit(task, lane)) {
+            return true;
+        }
+        scheduleWakeUpAt(lane.getScrapingRateLimiter().getNextRequestAllowedTime());
+        return false;
+    }
+
+    private boolean acquireRequestPermit(Task task, TaskLane lane) {
+        return !task.isMakingHttpRequests() || lane.getScrapingRateLimiter().incrementIfRequestWithinLimitAndGet(nowSupplier.get());
+    }
+
+    /**
+     * Called by the dispatcher only. Arms a one-off trigger of dequeueNextAndExecute() for the given time unless an earlier one is already pending
+     */
+    private void scheduleWakeUpAt(LocalDateTime wakeUpTime) {
+        if (scheduledWakeUp != null && !scheduledWakeUp.isDisposed() && !scheduledWakeUpTime.isAfter(wakeUpTime)) {
+            return; // an earlier or equal wake-up is already pending
+        }
+        if (scheduledWakeUp != null) {
+            scheduledWakeUp.dispose();
+        }
+        Duration delay = Duration.between(nowSupplier.get(), wakeUpTime);
+        if (delay.compareTo(MIN_WAKE_UP_DELAY) < 0) {
+            delay = MIN_WAKE_UP_DELAY;
+        }
+        log.trace("Scheduling next dequeue trigger in {}ms", delay.toMillis());
+        scheduledWakeUpTime = wakeUpTime;
+        scheduledWakeUp = Mono.delay(delay)
+                .subscribe(
+                        num -> dequeueNextAndExecute(),
+                        throwable -> log.warn("Error in scheduled trigger of dequeueNextAndExecute()", throwable)
+                );
+    }
+
+    private Duration getDelayUntilRateLimitAllows(TaskLane lane) {
+        Duration delay = Duration.between(nowSupplier.get(), lane.getScrapingRateLimiter().getNextRequestAllowedTime());
+        return delay.compareTo(MIN_WAKE_UP_DELAY) < 0 ? MIN_WAKE_UP_DELAY : delay;
+    }
+
+    private boolean canActivateReservation(Task task) {
+        boolean success = clientAccessManager.canActivateReservation(task.getClientReservationRequest());
+        checkAbilityToMakeProgress(success);
+        return success;
+    }
+
+    private void checkAbilityToMakeProgress(boolean clientReservationSuccess) {
+        long now = System.currentTimeMillis();
+        if (clientReservationSuccess) {
+            this.lastActivatedReservation = now;
+            this.lastLoggedNoProgress = now;
+        } else {
+            if (this.lastActivatedReservation == 0L) {
+                this.lastActivatedReservation = now;
+                this.lastLoggedNoProgress = now;
+            } else {
+                if ((now - this.lastActivatedReservation) > 10_000) {
+                    if ((now - this.lastLoggedNoProgress) > 10_000) {
+                        this.lastLoggedNoProgress = now;
+                        // TODO this happens also when sites are unresponsive an block a client for a long time without progress ...
+                        log.warn("It seems we cannot make progress due to lack of clients -> increase the max number of client instances");
+                    }
+                }
+            }
+        }
+    }
+
+    private void executeTaskAsync(Task task,
+                                  Optional<ClientId> clientId,
+                                  TaskLane lane,
+                                  Consumer<TaskResult> taskResultConsumer,
+                                  Consumer<TaskError> taskErrorConsumer,
+                                  long enqueuedNanos) {
+
+        AtomicBoolean isRetry = new AtomicBoolean(false);
+        Disposable.Swap subscription = Disposables.swap();
+        executingTasks.put(task.getStepOrder(), subscription);
+
+        Disposable disposable = Mono.just(task)
+                .doOnNext(t -> log.debug("{} - ... executing ...", task))
+                .map(task0 -> handleTaskIfRetried(isRetry, task0, lane))
+                .flatMap(canProceed -> runTask(task, clientId))
+                .publishOn(Schedulers.parallel())
+                .onErrorMap(error -> {
+                    logRequestError(task, error);
+                    return error;
+                })
+                .retryWhen(Retry.backoff(task.getMaxRetries(), task.getRetryBackoff()).filter(t -> !(t instanceof FlowException)))
+                .onErrorResume(error -> {
+                    logDroppingRetrying(task, error);
+                    logEnqueuedRequestCount();
+                    notifyOnErrorCallback(task, taskErrorConsumer, error);
+                    lane.getExecutingTasksTracker().untrack(task);   // only untrack here when retries have finished
+                    this.dequeueNextAndExecute();
+                    return Mono.empty();
+                })
+                .doOnNext(data -> {
+                    lane.getExecutingTasksTracker().untrack(task);
+                    logEnqueuedRequestCount();
+                    logRequestProcessed(task, enqueuedNanos);
+                })
+                .map(TaskResult::new)
+                .doOnCancel(() -> notifyOnErrorCallback(task, taskErrorConsumer, newCancellationException()))
+                .doOnCancel(taskFinishedHook(task))
+                .doOnTerminate(taskFinishedHook(task))
+                .subscribeOn(getSchedulerFor(clientId)) // parallel DOM access of one client slows down execution in Selenium substantially
+                .subscribe(taskResult -> {
+                            try {
+                                taskResultConsumer.accept(taskResult);
+                            } catch (Exception e) {
+                                log.error("Error consuming result for task: {}", task, e);
+                            }
+                            this.dequeueNextAndExecute(); // the consumers untrack the finished step which can unblock its child and sibling steps
+                        },
+                        throwable -> {
+                            try {
+                                taskErrorConsumer.accept(new TaskError(task, throwable));
+                            } catch (Exception e) {
+                                log.error("Error consuming error result for execution of task: {}", task, e);
+                            }
+                            this.dequeueNextAndExecute();
+                        }
+                );
+
+        subscription.update(disposable); // disposes the new subscription right away if the task got cancelled in the meantime
+        this.activeTaskCount.incrementAndGet();
+    }
+
+    // the reservation is already activated at this point so the client is known
+    private Scheduler getSchedulerFor(Optional<ClientId> clientId) {
+        return clientId.map(clientSchedulers::forClient)
+                .orElseGet(Schedulers::single);
+    }
+
+    private Mono<Task> runTask(Task task, Optional<ClientId> clientId) {
+        // if we got here it means that the previous step passed and emitted 'true'
+        if (task.getExecutionTimeout() != null) {
+            return runTaskWithTimeout(task, clientId);
+        }
+        Mono<Task> mono = Mono.fromCallable(() -> {
+            task.getStepRunnable().run();
+            return task;
+        });
+        if (task.isMakingHttpRequests()) {
+            mono = mono.subscribeOn(BlockingTasksSchedulers.forMode(options.getExecutionMode()));
+        }
+        return mono;
+    }
+
+    /**
+     * Time-limited tasks are always executed as a separately scheduled work which gets interrupted when the timeout elapses -
+     * tasks making requests on a blocking tasks worker, the others on the thread of their client to keep the access to the client serialized.
+     * The timeout error is emitted only once the interrupted execution stops so that the task is neither retried
+     * nor its client released while the timed out execution still accesses the client. An execution that does not stop
+     * within {@link #abandonAfter(Task)} has its client restarted so that the client does not stay held for good
+     */
+    private Mono<Task> runTaskWithTimeout(Task task, Optional<ClientId> clientId) {
+        return Mono.defer(() -> {
+            AtomicInteger state = new AtomicInteger(NOT_STARTED);
+            Sinks.Empty<Void> stopped = Sinks.empty();
+            Mono<Task> execution = Mono.fromCallable(() -> {
+                if (!state.compareAndSet(NOT_STARTED, RUNNING)) {
+                    return task; // timed out before it got started - the result is never used
+                }
+                try {
+                    task.getStepRunnable().run();
+                    return task;
+                } finally {
+                    state.set(STOPPED);
+                    stopped.tryEmitEmpty();
+                }
+            }).subscribeOn(getInterruptibleSchedulerFor(task, clientId));
+            Mono<Task> timedOut = Mono.defer(() -> {
+                if (!state.compareAndSet(NOT_STARTED, STOPPED)) {
+                    log.debug("{} - timed out - waiting for the interrupted execution to stop", task);
+                    return stopped.asMono()
+                            .timeout(abandonAfter(task), restartClientOf(task, clientId))
+                            .then(Mono.error(() -> newTimeoutException(task)));
+                }
+                return Mono.error(newTimeoutException(task));
+            });
+            return execution.timeout(task.getExecutionTimeout(), timedOut);
+        });
+    }
+
+    /**
+     * How long an interrupted execution gets to stop - as long as its timeout itself but at least {@link #ABANDON_AFTER_MIN}
+     */
+    private static Duration abandonAfter(Task task) {
+        Duration timeout = task.getExecutionTimeout();
+        return timeout.compareTo(ABANDON_AFTER_MIN) > 0 ? timeout : ABANDON_AFTER_MIN;
+    }
+
+    private Mono<Void> restartClientOf(Task task, Optional<ClientId> clientId) {
+        return Mono.<Void>fromRunnable(() -> {
+            log.warn("{} - timed out execution did not respond to interruption - abandoning it", task);
+            clientId.ifPresent(clientAccessManager::restartClient);
+        }).subscribeOn(BlockingTasksSchedulers.forMode(options.getExecutionMode()));
+    }
+
+    private Scheduler getInterruptibleSchedulerFor(Task task, Optional<ClientId> clientId) {
+        if (task.isMakingHttpRequests() || clientId.isEmpty()) {
+            return BlockingTasksSchedulers.forMode(options.getExecutionMode());
+        }
+        return clientSchedulers.forClient(clientId.get());
+    }
+
+    private static TimeoutException newTimeoutException(Task task) {
+        return new TimeoutException("Execution of task exceeded its timeout of " + task.getExecutionTimeout().toMillis() + "ms");
+    }
+
+    private Runnable taskFinishedHook(Task task) {
+        return () -> {
+            log.debug("Finished step {}", task);
+            executingTasks.remove(task.getStepOrder());
+            clientAccessManager.finishReservation(task.getStepOrder());
+            clientReleased.set(true);
+            this.activeTaskCount.decrementAndGet();
+            this.dequeueNextAndExecute();
+        };
+    }
+
+    // returns true if the stepTask is within limit and any subsequent execution of this block for the
+    // same flux/mono instance will mean that it is a retry after failure
+    private Mono<Boolean> handleTaskIfRetried(AtomicBoolean isRetry, Task task, TaskLane lane) {
+        if (isRetry.get()) {
+            if (isWithinScrapingLimits(task, lane)) {
+                logRetry(task);
+                return Mono.just(true);
+            } else {
+                // repeat until we are within limit ...
+                logDelayedRetry(task);
+                return Mono.just(false)
+                        .delayElement(getDelayUntilRateLimitAllows(lane))
+                        .flatMap(dummy -> handleTaskIfRetried(isRetry, task, lane)); // call this method again ... kind of recursively ... until we are within limit at some point
+
+            }
+        } else {
+            isRetry.set(true); // any subsequent traversal of this mono can only be a retry
+            return Mono.just(true);
+        }
+    }
+
+    private void notifyOnErrorCallback(Task task, Consumer<TaskError> taskErrorConsumer, Throwable error) {
+        try {
+            taskErrorConsumer.accept(new TaskError(task, error));
+        } catch (Exception e) {
+            log.error("Error in taskErrorConsumer callback: ", e);
+        }
+    }
+
+    /**
+     * @return true if all tasks finished within the specified timeout
+     */
+    @Override
+    public boolean awaitCompletion(Duration timeout) {
+
+        LocalDateTime start = LocalDateTime.now();
+        long checkFrequencyMillis = timeout.toMillis() > COMPLETION_CHECK_FREQUENCY_MILLIS ? COMPLETION_CHECK_FREQUENCY_MILLIS : 1L;
+        Duration period = Duration.ofMillis(checkFrequencyMillis);
+
+        AtomicBoolean withinTimeout = new AtomicBoolean(false);
+
+        try {
+            Flux.interval(period, period)
+                    .doOnNext(checkNo -> {
+                        // TODO cleanup reasources ... open browser windows and such ...
+                        if (activeTaskCount.get() == 0 && waitingTaskCount() == 0) {
+                            LocalDateTime end = LocalDateTime.now();
+                            long millis = ChronoUnit.MILLIS.between(start, end);
+                            log.info(">>> Finished scraping in {}s <<<", millis / 1000.0);
+                            withinTimeout.set(true);
+                            throw new TerminateFluxException();
+                        }
+                    })
+                    .blockLast(timeout);
+        } catch (TerminateFluxException e) {
+            // ok - we terminate the flux with this ...
+        } catch (Exception e) {
+            // the caller decides whether to cancel the remaining tasks by calling cancelAll()
+            log.warn("Scraping did not manage to finish within the specified timeout {}", timeout);
+            return false;
+        }
+
+        return withinTimeout.get(); // if this was set to true we made it within the given timeout
+    }
+
+    @Override
+    public void cancelAll() {
+        List<QueuedTask> dropped;
+        cancelled = true;
+        dispatchLock.lock();
+        try {
+            dropped = admitSubmissions();
+            dropped.addAll(drainQueues());
+            if (scheduledWakeUp != null) {
+                scheduledWakeUp.dispose();
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+        log.info("Cancelling {} queued and {} executing tasks", dropped.size(), executingTasks.size());
+        dropped.forEach(qt -> notifyOnErrorCallback(qt.getTask(), qt.getTaskErrorConsumer(), newCancellationException()));
+        // the cancel hooks finish the client reservations and remove the entries
+        new ArrayList<>(executingTasks.values()).forEach(Disposable::dispose);
+    }
+
+    private static CancellationException newCancellationException() {
+        return new CancellationException("Task execution was cancelled");
+    }
+
+    private void logRequestError(Task request, Throwable error) {
+        log.warn("Error for task: {}", request, error);
+    }
+
+    private void logRetry(Task request) {
+        log.info("Going to retry task after previous failure {}", request);
+    }
+
+    private void logDelayedRetry(Task request) {
+        log.trace("Cannot retry task yet - due to rqs per sec. limit {}", request);
+    }
+
+    private void logEnqueuedRequestCount() {
+        if (log.isTraceEnabled()) {
+            log.trace("Currently enqueued tasks count = {}", waitingTaskCount());
+        }
+    }
+
+    private void logRequestProcessed(Task request, long enqueuedNanos) {
+        if (log.isTraceEnabled()) {
+            final double processingTime = (System.nanoTime() - enqueuedNanos) / 1_000_000_000.0;
+            log.trace("Task took {}s to process: {}", String.format("%.2f", processingTime), request);
+        }
+    }
+
+    private void logDroppingRetrying(Task request, Throwable error) {
+        log.trace("Dropping task retry {} after error: ", request, error);
+    }
+
+    // used only to terminate a blocking flux from within (no other way to "cancel" it)
+    private static class TerminateFluxException extends RuntimeException {
+    }
+
+}
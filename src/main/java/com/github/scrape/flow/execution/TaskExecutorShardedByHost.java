@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientAccessManager;
+import com.github.scrape.flow.scraping.Options;
+import com.github.scrape.flow.throttling.ScrapingRateLimiter;
+import com.github.scrape.flow.throttling.ThrottlingService;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Shards tasks by their target host. Each host gets its own queue, rate limiter and throttling budget so that
+ * a slow or rate-limited host does not hold back the dispatching of tasks for other hosts.
+ * Tasks making requests to an unknown host are queued in a shared lane and CPU-only tasks (parsing, filtering ...) in a lane of their own
+ * so that they never wait for a request slot to open.
+ * <p>
+ * Lanes are dispatched from in a round-robin fashion - one task per lane in each round - so that no host gets starved.
+ * Only lanes with queued tasks are visited when dispatching. Lanes of hosts that have no queued nor executing tasks
+ * are dropped once their rate limiter would allow the next request so that crawling many hosts does not accumulate lanes.
+ */
+@Log4j2
+public class TaskExecutorShardedByHost extends TaskExecutorBase {
+
+    private final TaskLane sharedLane;
+    private final TaskLane cpuLane;
+    // accessed by the dispatcher only
+    private final Map<String, TaskLane> hostLanes = new HashMap<>();
+    // all lanes in the order of their creation - only the dispatcher modifies it but the queue sizes are read by other threads too
+    private final List<TaskLane> lanes = new CopyOnWriteArrayList<>();
+    // lanes with queued tasks; accessed by the dispatcher only
+    private final List<TaskLane> dispatchableLanes = new ArrayList<>();
+    // host lanes without queued tasks waiting to be dropped; accessed by the dispatcher only
+    private final Set<TaskLane> idleHostLanes = new LinkedHashSet<>();
+    // index of the dispatchable lane the next dispatching round starts with; accessed by the dispatcher only
+    private int firstLaneIdx = 0;
+    private final Supplier<ScrapingRateLimiter> hostRateLimiterFactory;
+    private final Supplier<ThrottlingService> hostThrottlingServiceFactory;
+    private final IntSupplier maxConcurrentNetworkTasks;
+
+    public TaskExecutorShardedByHost(ThrottlingService throttlingService,
+                                     ExclusiveExecutionHandler exclusiveExecutionHandler,
+                                     ScrapingRateLimiter scrapingRateLimiter,
+                                     Supplier<ScrapingRateLimiter> hostRateLimiterFactory,
+                                     ActiveStepsTracker activeStepsTracker,
+                                     ClientAccessManager clientAccessManager,
+                                     Options options) {
+        this(throttlingService,
+                LocalDateTime::now,
+                exclusiveExecutionHandler,
+                scrapingRateLimiter,
+                hostRateLimiterFactory,
+                ThrottlingService::new,
+                activeStepsTracker,
+                clientAccessManager,
+                options);
+    }
+
+    /**
+     * FOR TESTING PURPOSES ONLY
+     * package private access is intentional
+     */
+    TaskExecutorShardedByHost(ThrottlingService throttlingService,
+                              Supplier<LocalDateTime> nowSupplier,
+                              ExclusiveExecutionHandler exclusiveExecutionHandler,
+                              ScrapingRateLimiter scrapingRateLimiter,
+                              Supplier<ScrapingRateLimiter> hostRateLimiterFactory,
+                              Supplier<ThrottlingService> hostThrottlingServiceFactory,
+                              ActiveStepsTracker activeStepsTracker,
+                              ClientAccessManager clientAccessManager,
+                              Options options) {
+        super(nowSupplier, exclusiveExecutionHandler, activeStepsTracker, clientAccessManager, options);
+        this.maxConcurrentNetworkTasks = options::getMaxConcurrentNetworkTasks;
+        this.sharedLane = new TaskLane("shared", scrapingRateLimiter, throttlingService, maxConcurrentNetworkTasks, this::getTaskOrdering);
+        this.cpuLane = new TaskLane("cpu", scrapingRateLimiter, new ThrottlingService(), options::getMaxConcurrentCpuTasks, this::getTaskOrdering);
+        this.hostRateLimiterFactory = hostRateLimiterFactory;
+        this.hostThrottlingServiceFactory = hostThrottlingServiceFactory;
+        this.lanes.add(sharedLane);
+        this.lanes.add(cpuLane);
+    }
+
+    @Override
+    protected TaskLane laneFor(Task task) {
+        TaskLane lane = findLaneFor(task);
+        if (!lane.isDispatchable()) {
+            lane.setDispatchable(true);
+            dispatchableLanes.add(lane);
+            idleHostLanes.remove(lane);
+        }
+        return lane;
+    }
+
+    private TaskLane findLaneFor(Task task) {
+        if (!task.isMakingHttpRequests()) {
+            return cpuLane;
+        }
+        String host = task.getHost();
+        if (host == null) {
+            return sharedLane;
+        }
+        return hostLanes.computeIfAbsent(host, h -> {
+            log.debug("Creating new task lane for host {}", h);
+            TaskLane lane = new TaskLane(h, hostRateLimiterFactory.get(), hostThrottlingServiceFactory.get(), maxConcurrentNetworkTasks, this::getTaskOrdering);
+            lanes.add(lane);
+            return lane;
+        });
+    }
+
+    @Override
+    protected void dispatchAll() {
+        boolean dispatchedAny = true;
+        while (dispatchedAny && !dispatchableLanes.isEmpty()) {
+            dispatchedAny = false;
+            int laneCount = dispatchableLanes.size();
+            for (int i = 0; i < laneCount; i++) {
+                TaskLane lane = dispatchableLanes.get((firstLaneIdx + i) % laneCount);
+                if (!lane.getQueue().isEmpty() && dispatchNextFrom(lane)) {
+                    dispatchedAny = true;
+                }
+            }
+            removeEmptyLanesFromDispatching();
+        }
+        // the next dispatching starts with the following lane
+        firstLaneIdx = dispatchableLanes.isEmpty() ? 0 : (firstLaneIdx + 1) % dispatchableLanes.size();
+        dropIdleHostLanes();
+    }
+
+    private void removeEmptyLanesFromDispatching() {
+        dispatchableLanes.removeIf(lane -> {
+            if (!lane.getQueue().isEmpty()) {
+                return false;
+            }
+            lane.setDispatchable(false);
+            if (hostLanes.get(lane.getName()) == lane) {
+                idleHostLanes.add(lane);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * A dropped lane gets created anew with a fresh rate limiter when its host gets another task so it is dropped only
+     * after its current rate limiter would allow a request anyway
+     */
+    private void dropIdleHostLanes() {
+        LocalDateTime now = now();
+        Iterator<TaskLane> it = idleHostLanes.iterator();
+        while (it.hasNext()) {
+            TaskLane lane = it.next();
+            if (lane.isIdle() && !now.isBefore(lane.getScrapingRateLimiter().getNextRequestAllowedTime())) {
+                it.remove();
+                hostLanes.remove(lane.getName());
+                lanes.remove(lane);
+                log.debug("Dropped idle task lane for host {}", lane.getName());
+            }
+        }
+    }
+
+    @Override
+    protected Iterable<TaskLane> getDispatchableLanes() {
+        return dispatchableLanes;
+    }
+
+    @Override
+    protected List<QueuedTask> drainQueues() {
+        List<QueuedTask> drained = new ArrayList<>();
+        lanes.forEach(lane -> drained.addAll(lane.getQueue().drain()));
+        return drained;
+    }
+
+    @Override
+    protected int queuedTaskCount() {
+        int count = 0;
+        for (TaskLane lane : lanes) {
+            count += lane.getQueue().size();
+        }
+        return count;
+    }
+
+    int laneCount() {
+        return lanes.size();
+    }
+
+}
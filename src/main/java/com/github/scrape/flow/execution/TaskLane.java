@@ -0,0 +1,89 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.throttling.ScrapingRateLimiter;
+import com.github.scrape.flow.throttling.ThrottlingService;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Comparator;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Queue of tasks together with the rate limiter, throttling budget and concurrency limit that apply to their execution.
+ * Not thread safe! Access is guarded by the owning executor
+ */
+@Getter
+class TaskLane {
+
+    private final String name;
+    private final SkipAheadTaskQueue queue;
+    private final ScrapingRateLimiter scrapingRateLimiter;
+    private final ThrottlingService throttlingService;
+    private final ExecutingTasksTracker executingTasksTracker;
+    // read on each check so that changes to the settings apply to running scraping
+    private final IntSupplier maxExecutingTasks;
+    // true while the owning executor dispatches from this lane
+    @Setter
+    private boolean dispatchable;
+
+    TaskLane(String name,
+             ScrapingRateLimiter scrapingRateLimiter,
+             ThrottlingService throttlingService,
+             IntSupplier maxExecutingTasks,
+             Supplier<Comparator<QueuedTask>> ordering) {
+        this(name, scrapingRateLimiter, throttlingService, new ExecutingTasksTracker(), maxExecutingTasks, ordering);
+    }
+
+    TaskLane(String name,
+             ScrapingRateLimiter scrapingRateLimiter,
+             ThrottlingService throttlingService,
+             ExecutingTasksTracker executingTasksTracker,
+             IntSupplier maxExecutingTasks,
+             Supplier<Comparator<QueuedTask>> ordering) {
+        this.name = name;
+        this.queue = new SkipAheadTaskQueue(ordering);
+        this.scrapingRateLimiter = scrapingRateLimiter;
+        this.throttlingService = throttlingService;
+        this.executingTasksTracker = executingTasksTracker;
+        this.maxExecutingTasks = maxExecutingTasks;
+    }
+
+    boolean isWithinThrottlingLimit() {
+        return throttlingService.isWithinLimit(executingTasksTracker.countOfExecutingThrottlableTasks());
+    }
+
+    /**
+     * @return true if no task of this lane is queued or executing
+     */
+    boolean isIdle() {
+        return queue.isEmpty() && executingTasksTracker.countOfExecutingTasks() == 0;
+    }
+
+    boolean isWithinConcurrencyLimit() {
+        return executingTasksTracker.countOfExecutingTasks() < maxExecutingTasks.getAsInt();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskLane{" + name + '}';
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.scraping.TraversalStrategy;
+
+import java.util.Comparator;
+
+/**
+ * Orderings of queued tasks corresponding to the supported traversal strategies
+ */
+class TaskOrderings {
+
+    static final Comparator<QueuedTask> DEPTH_FIRST = QueuedTask.NATURAL_COMPARATOR;
+
+    static final Comparator<QueuedTask> BREADTH_FIRST = Comparator.<QueuedTask>comparingInt(qt -> qt.getTask().getStepOrder().size())
+            .thenComparing(QueuedTask.NATURAL_COMPARATOR);
+
+    private TaskOrderings() {
+    }
+
+    static Comparator<QueuedTask> forStrategy(TraversalStrategy strategy) {
+        switch (strategy) {
+            case BREADTH_FIRST:
+            case HYBRID:
+                return BREADTH_FIRST;
+            case DEPTH_FIRST:
+            default:
+                return DEPTH_FIRST;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientReservationType;
+import com.github.scrape.flow.scraping.ClientType;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import javax.annotation.concurrent.Immutable;
+import java.time.Duration;
+
+/**
+ * Properties that are the same for all tasks of one step. Created once when the step gets compiled
+ * and shared by all the task definitions and tasks of the step
+ */
+@Immutable
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TaskProfile {
+
+    private final StepOrder stepHierarchyOrder;
+
+    /**
+     * Tasks with this setting will be executed with priority
+     * The implementation should effectively disable the execution of
+     * tasks with subsequent stepOrder values which have with
+     * exclusive = false for the time exclusive tasks are running.
+     */
+    private final boolean exclusiveExecution;
+
+    private final String stepName;
+    private final boolean throttlingAllowed;
+    private final boolean makingHttpRequests;
+    private final ClientType clientType;
+    private final ClientReservationType clientReservationType;
+
+    /**
+     * Max duration of the task's execution after which it is cancelled. Null if there is no limit
+     */
+    private final Duration executionTimeout;
+
+    /**
+     * True for tasks that continue expanding the next steps for elements found by a step which stopped because the task queue was full
+     * or because the elements are expanded lazily. These are held back until the queue drains or there is no other executable task
+     */
+    private final boolean deferredExpansion;
+
+    /**
+     * True for tasks that can be executed inline within the task of the step that submitted them instead of being queued on their own.
+     * See {@link TaskService} for the conditions under which this happens
+     */
+    private final boolean fusable;
+
+}
@@ -16,48 +16,248 @@
 
 package com.github.scrape.flow.execution;
 
+import com.github.scrape.flow.clients.ClientAccessManager;
+import com.github.scrape.flow.clients.ClientReservationRequest;
+import com.github.scrape.flow.clients.ClientReservationType;
 import com.github.scrape.flow.data.publishing.ScrapedDataPublisher;
 import com.github.scrape.flow.scraping.Options;
 import com.github.scrape.flow.throttling.ScrapingRateLimiter;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 
 import java.time.Duration;
 
+/**
+ * Submits steps for execution as tasks.
+ * <p>
+ * Fusable steps (see {@link TaskDefinition#isFusable()}) submitted from within the runnable of a task are not queued as tasks of their own.
+ * They are executed inline right after the runnable finishes, on the same thread and within the same task, which spares chains
+ * of steps that only read the loaded page all the queueing and dispatching. Fused steps are still tracked as active and hold
+ * client reservations so step order numbering, publishing of data and steps spawned by them that cannot be fused behave the same way
+ * as with separately executed tasks. Steps are fused only into tasks executed on the thread of their client (not into tasks making
+ * HTTP requests which are executed on IO threads). Tasks with an execution timeout do not fuse steps as these would count against the timeout.
+ * A fused step that fails is submitted as a task of its own with the retries left so it gets retried the same way as any other task
+ * <p>
+ * Reading steps that cannot be fused because they share their client with steps modifying the page are batched instead.
+ * Consecutive executions of the same step for sibling elements are submitted as one task once the submitting task finishes
+ * (or the batch gets full) so the executor decides about their admission only once. Steps spawned by an execution are ordered
+ * before the following executions though - once an execution submits a step that modifies the page or requires exclusive execution,
+ * or the client cannot be read from for another reason, the remaining executions are submitted as tasks of their own.
+ * Each execution is still tracked under its own step order
+ */
+@Log4j2
 @RequiredArgsConstructor
 public class TaskService {
 
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final TaskExecutor taskExecutor;
     private final ActiveStepsTracker activeStepsTracker;
     private final ScrapedDataPublisher scrapedDataPublisher;
     private final ScrapingRateLimiter scrapingRateLimiter;
     private final Options options;
+    private final StepOrderGenerator stepOrderGenerator;
+    private final ClientAccessManager clientAccessManager;
 
     public void submitForExecution(TaskDefinition taskDefinition) {
-        Task task = createStepTask(taskDefinition);
+        FusedSteps fusedSteps = FusedSteps.current();
+        if (fusedSteps != null) {
+            if (taskDefinition.isFusable() && fusedSteps.isFusionAllowed()) {
+                fuse(taskDefinition, fusedSteps);
+                return;
+            }
+            if (isBatchable(taskDefinition)) {
+                addToBatch(taskDefinition, fusedSteps);
+                return;
+            }
+            submitPendingBatch(fusedSteps); // keeps the submission order of the steps
+            if (taskDefinition.getClientReservationType() == ClientReservationType.MODIFYING || taskDefinition.isExclusiveExecution()) {
+                fusedSteps.markOrderingStepSubmitted();
+            }
+        }
+
+        activeStepsTracker.track(taskDefinition.getStepOrder(), taskDefinition.getStepHierarchyOrder(), taskDefinition.getStepName());
+        submitTask(taskDefinition, taskDefinition.getStepRunnable(), () -> {});
+    }
+
+    /**
+     * @param onError called in addition to the handling of the finished step when the task fails or gets cancelled
+     */
+    private void submitTask(TaskDefinition taskDefinition, Runnable stepRunnable, Runnable onError) {
+        Task task = createStepTask(taskDefinition, stepRunnable);
 
         StepOrder stepOrder = task.getStepOrder();
-        activeStepsTracker.track(stepOrder, taskDefinition.getStepHierarchyOrder(), task.getStepName());
         taskExecutor.submit(
                 task,
                 r -> handleFinishedStep(stepOrder),
-                e -> handleFinishedStep(stepOrder) // even when we finish in error there might be successfully parsed other data that might be waiting to get published outside
+                e -> { // even when we finish in error there might be successfully parsed other data that might be waiting to get published outside
+                    handleFinishedStep(stepOrder);
+                    onError.run();
+                }
         );
     }
 
-    private Task createStepTask(TaskDefinition taskDefinition) {
-        scrapingRateLimiter.getRequestFreq();
+    private Task createStepTask(TaskDefinition taskDefinition, Runnable stepRunnable) {
+        return createStepTask(taskDefinition, stepRunnable, options.getMaxRequestRetries());
+    }
+
+    private Task createStepTask(TaskDefinition taskDefinition, Runnable stepRunnable, int retriesLeft) {
         int retries = options.getMaxRequestRetries();
+        Runnable runnable = taskDefinition.getExecutionTimeout() == null
+                ? executingFusedStepsAfter(stepRunnable, !taskDefinition.isMakingHttpRequests())
+                : stepRunnable;
         Task task;
         if (retries == 0) {
-            task = Task.from(taskDefinition, retries, Duration.ZERO);
+            task = Task.from(taskDefinition, runnable, retriesLeft, Duration.ZERO);
         } else {
-            task = Task.from(taskDefinition, retries, scrapingRateLimiter.getRequestFreq().dividedBy(retries));
+            task = Task.from(taskDefinition, runnable, retriesLeft, scrapingRateLimiter.getRequestFreq().dividedBy(retries));
         }
         return task;
     }
 
+    private void fuse(TaskDefinition taskDefinition, FusedSteps fusedSteps) {
+        StepOrder stepOrder = taskDefinition.getStepOrder();
+        activeStepsTracker.track(stepOrder, taskDefinition.getStepHierarchyOrder(), taskDefinition.getStepName());
+        // steps spawned by this one that cannot be fused look up their client through this reservation
+        clientAccessManager.makeReservationPlaceholder(toReservationRequest(taskDefinition));
+        fusedSteps.add(taskDefinition);
+        log.trace("{} - fused into the executing task", stepOrder);
+    }
+
+    /**
+     * Page loading, modifying, exclusive and time limited steps need to be admitted by the executor one by one
+     */
+    private boolean isBatchable(TaskDefinition taskDefinition) {
+        return taskDefinition.getClientReservationType() == ClientReservationType.READING
+                && !taskDefinition.isMakingHttpRequests()
+                && !taskDefinition.isExclusiveExecution()
+                && taskDefinition.getExecutionTimeout() == null
+                && !taskDefinition.isDeferredExpansion();
+    }
+
+    private void addToBatch(TaskDefinition taskDefinition, FusedSteps fusedSteps) {
+        StepBatch batch = fusedSteps.getPendingBatch();
+        if (batch != null && !batch.accepts(taskDefinition)) {
+            submitPendingBatch(fusedSteps);
+            batch = null;
+        }
+        activeStepsTracker.track(taskDefinition.getStepOrder(), taskDefinition.getStepHierarchyOrder(), taskDefinition.getStepName());
+        if (batch == null) {
+            batch = new StepBatch();
+            fusedSteps.setPendingBatch(batch);
+        } else {
+            // the reservation of the first one is handled by the executor
+            clientAccessManager.makeReservationPlaceholder(toReservationRequest(taskDefinition));
+        }
+        batch.add(taskDefinition);
+        if (batch.size() >= MAX_BATCH_SIZE) {
+            submitPendingBatch(fusedSteps);
+        }
+    }
+
+    private void submitPendingBatch(FusedSteps fusedSteps) {
+        StepBatch batch = fusedSteps.getPendingBatch();
+        if (batch == null) {
+            return;
+        }
+        fusedSteps.setPendingBatch(null);
+        TaskDefinition first = batch.getFirst();
+        if (batch.size() == 1) {
+            submitTask(first, first.getStepRunnable(), () -> {});
+            return;
+        }
+        log.trace("{} - submitting batch of {} executions of step {}", first.getStepOrder(), batch.size(), first.getStepName());
+        Runnable batchRunnable = () -> {
+            RuntimeException firstFailure = null;
+            try {
+                first.getStepRunnable().run();
+            } catch (RuntimeException e) {
+                firstFailure = e; // the others are executed anyway - only the first one gets executed again when the task is retried
+            }
+            FusedSteps current = FusedSteps.current();
+            TaskDefinition next;
+            while ((next = batch.claimNext()) != null) {
+                if (current.isOrderingStepSubmitted() || !clientAccessManager.canActivateReservation(toReservationRequest(next))) {
+                    submitSeparately(next, batch);
+                    break;
+                }
+                executeInline(next, current);
+            }
+            if (firstFailure != null) {
+                throw firstFailure;
+            }
+        };
+        submitTask(first, batchRunnable, () -> batch.claimRemaining().forEach(td -> {
+            clientAccessManager.finishReservation(td.getStepOrder());
+            handleFinishedStep(td.getStepOrder());
+        }));
+    }
+
+    /**
+     * Submits the given execution of the batch and all the following ones as tasks of their own.
+     * These are tracked and have their reservation placeholders already
+     */
+    private void submitSeparately(TaskDefinition next, StepBatch batch) {
+        log.trace("{} - submitting the rest of the batch of step {} as separate tasks", next.getStepOrder(), next.getStepName());
+        submitTask(next, next.getStepRunnable(), () -> {});
+        batch.claimRemaining().forEach(td -> submitTask(td, td.getStepRunnable(), () -> {}));
+    }
+
+    /**
+     * @param fusionAllowed true if the task is executed on the thread of its client
+     */
+    private Runnable executingFusedStepsAfter(Runnable stepRunnable, boolean fusionAllowed) {
+        return () -> {
+            FusedSteps fusedSteps = FusedSteps.open(fusionAllowed);
+            try {
+                stepRunnable.run();
+                TaskDefinition next;
+                while ((next = fusedSteps.pollNext()) != null) {
+                    executeInline(next, fusedSteps);
+                }
+            } finally {
+                fusedSteps.close();
+                for (TaskDefinition discarded : fusedSteps.discardPending()) {
+                    clientAccessManager.finishReservation(discarded.getStepOrder());
+                    fusedSteps.markFinished(discarded.getStepOrder());
+                }
+                submitPendingBatch(fusedSteps);
+                fusedSteps.getFinished().forEach(this::handleFinishedStep);
+            }
+        };
+    }
+
+    /**
+     * The failure of a step executed inline must not fail the task it is executed within - the step is retried as a task of its own instead
+     */
+    private void executeInline(TaskDefinition taskDefinition, FusedSteps fusedSteps) {
+        StepOrder stepOrder = taskDefinition.getStepOrder();
+        clientAccessManager.activateReservation(toReservationRequest(taskDefinition));
+        boolean failed = false;
+        try {
+            taskDefinition.getStepRunnable().run();
+        } catch (Exception e) {
+            failed = true;
+            log.warn("{} - error executing step {} inline", stepOrder, taskDefinition.getStepName(), e);
+        } finally {
+            clientAccessManager.finishReservation(stepOrder);
+        }
+        if (failed && options.getMaxRequestRetries() > 0) {
+            log.info("{} - going to retry step {} as a task of its own", stepOrder, taskDefinition.getStepName());
+            Task retry = createStepTask(taskDefinition, taskDefinition.getStepRunnable(), options.getMaxRequestRetries() - 1);
+            taskExecutor.submit(retry, r -> handleFinishedStep(stepOrder), e -> handleFinishedStep(stepOrder));
+        } else {
+            fusedSteps.markFinished(stepOrder);
+        }
+    }
+
+    private ClientReservationRequest toReservationRequest(TaskDefinition taskDefinition) {
+        return new ClientReservationRequest(taskDefinition.getStepOrder(), taskDefinition.getClientReservationType(), taskDefinition.getClientType());
+    }
+
     private void handleFinishedStep(StepOrder stepOrder) {
         activeStepsTracker.untrack(stepOrder);
+        stepOrderGenerator.releaseFinished(stepOrder, activeStepsTracker::isPartOfActiveStepSequence);
         scrapedDataPublisher.publishDataAfterStepFinished(stepOrder);
     }
 
@@ -18,6 +18,8 @@ package com.github.scrape.flow.scraping;
 
 import lombok.RequiredArgsConstructor;
 
+import java.time.Duration;
+
 @SuppressWarnings("UnusedReturnValue")
 @RequiredArgsConstructor
 public class ConfigurableScraping {
@@ -38,4 +40,118 @@ public class ConfigurableScraping {
         return scraping;
     }
 
+    /**
+     * determines how tasks making blocking HTTP requests (e.g. loading new pages) are executed.
+     * Use {@link ExecutionMode#VIRTUAL_THREADS} to have many more concurrent page loads than there are processors
+     * @return reference to this instance
+     */
+    public Scraping setExecutionMode(ExecutionMode executionMode) {
+        scraping.getServices().getOptions().setExecutionMode(executionMode);
+        return scraping;
+    }
+
+    /**
+     * limit the number of steps executed in parallel that do not make any HTTP requests (e.g. parsing of loaded pages).
+     * Defaults to the number of available processors
+     * @return reference to this instance
+     */
+    public Scraping setMaxConcurrentCpuTasks(int max) {
+        scraping.getServices().getOptions().setMaxConcurrentCpuTasks(max);
+        return scraping;
+    }
+
+    /**
+     * limit the number of steps executed in parallel that make HTTP requests (e.g. loading new pages).
+     * These are limited by the rate limiter in the first place so by default there is no additional limit
+     * @return reference to this instance
+     */
+    public Scraping setMaxConcurrentNetworkTasks(int max) {
+        scraping.getServices().getOptions().setMaxConcurrentNetworkTasks(max);
+        return scraping;
+    }
+
+    /**
+     * limit the number of tasks waiting for execution. When reached, steps stop spawning next steps for the elements they found
+     * until the queue drains, so that memory use does not grow with the number of elements on scraped pages
+     * @return reference to this instance
+     */
+    public Scraping setMaxQueuedTasks(int max) {
+        scraping.getServices().getOptions().setMaxQueuedTasks(max);
+        return scraping;
+    }
+
+    /**
+     * determines whether steps spawn the next steps for all found elements at once or one by one as the executor has capacity.
+     * See {@link ExpansionMode}
+     * @return reference to this instance
+     */
+    public Scraping setExpansionMode(ExpansionMode expansionMode) {
+        scraping.getServices().getOptions().setExpansionMode(expansionMode);
+        return scraping;
+    }
+
+    /**
+     * determines the order in which steps ready for execution are picked. See {@link TraversalStrategy}
+     * @return reference to this instance
+     */
+    public Scraping setTraversalStrategy(TraversalStrategy traversalStrategy) {
+        scraping.getServices().getOptions().setTraversalStrategy(traversalStrategy);
+        return scraping;
+    }
+
+    /**
+     * limit the number of pages open at once when using {@link TraversalStrategy#HYBRID}
+     * @return reference to this instance
+     */
+    public Scraping setMaxOpenPages(int max) {
+        scraping.getServices().getOptions().setMaxOpenPages(max);
+        return scraping;
+    }
+
+    /**
+     * number of threads delivering scraped data to listeners. Each listener still receives its data from one thread at a time.
+     * Needs to be set before the scraping starts
+     * @return reference to this instance
+     */
+    public Scraping setPublishingThreads(int threads) {
+        scraping.getServices().getOptions().setPublishingThreads(threads);
+        return scraping;
+    }
+
+    /**
+     * limit the number of scraped data waiting for delivery to a listener. Once reached, loading of new pages pauses until the listener catches up
+     * @return reference to this instance
+     */
+    public Scraping setPublishingQueueCapacity(int capacity) {
+        scraping.getServices().getOptions().setPublishingQueueCapacity(capacity);
+        return scraping;
+    }
+
+    /**
+     * determines the order in which scraped data gets published to listeners. See {@link PublishingMode}
+     * @return reference to this instance
+     */
+    public Scraping setPublishingMode(PublishingMode publishingMode) {
+        scraping.getServices().getOptions().setPublishingMode(publishingMode);
+        return scraping;
+    }
+
+    /**
+     * limit the number of finalized data held back to be published in order when using {@link PublishingMode#BOUNDED_REORDER}
+     * @return reference to this instance
+     */
+    public Scraping setMaxReorderBufferSize(int max) {
+        scraping.getServices().getOptions().setMaxReorderBufferSize(max);
+        return scraping;
+    }
+
+    /**
+     * limit the time finalized data is held back to be published in order when using {@link PublishingMode#BOUNDED_REORDER}
+     * @return reference to this instance
+     */
+    public Scraping setMaxReorderDelay(Duration max) {
+        scraping.getServices().getOptions().setMaxReorderDelay(max);
+        return scraping;
+    }
+
 }
@@ -18,39 +18,56 @@ package com.github.scrape.flow.scraping;
 
 import com.github.scrape.flow.data.collectors.ModelWrapper;
 
-import java.util.List;
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
 import java.util.Optional;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Holds the generated models in a sequence of step executions so they are accessible from the parsingContext.
- * Access is synchronised to insure data visibility when switching threads
+ * <p>
+ * Immutable so that it can be shared by all the steps spawned for found elements instead of being copied for each of them.
+ * Models are indexed by a small id assigned to each model class so lookups do not need to go through the held models.
+ * Only the first model added for a class is visible, models of the same class added later by nested steps are ignored
  */
+@Immutable
 public class ContextModels {
 
-    private final List<ModelWrapper> models;
+    private static final AtomicInteger NEXT_CLASS_ID = new AtomicInteger(0);
+    private static final ClassValue<Integer> CLASS_IDS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NEXT_CLASS_ID.getAndIncrement();
+        }
+    };
+    private static final ModelWrapper[] NO_MODELS = new ModelWrapper[0];
 
-    public ContextModels() {
-        this.models = new CopyOnWriteArrayList<>();
-    }
+    private final ModelWrapper[] modelsByClassId;
 
-    private ContextModels(List<ModelWrapper> models) {
-        this();
-        this.models.addAll(models);
+    public ContextModels() {
+        this(NO_MODELS);
     }
 
-    public ContextModels copy() {
-        return new ContextModels(this.models);
+    private ContextModels(ModelWrapper[] modelsByClassId) {
+        this.modelsByClassId = modelsByClassId;
     }
 
-    public void add(Object model, Class<?> modelType) {
-        models.add(new ModelWrapper(model, modelType));
+    /**
+     * @return models containing the given model in addition to the models held by this instance, which stays unchanged
+     */
+    public ContextModels with(Object model, Class<?> modelType) {
+        int classId = CLASS_IDS.get(modelType);
+        if (classId < modelsByClassId.length && modelsByClassId[classId] != null) {
+            return this;
+        }
+        ModelWrapper[] models = Arrays.copyOf(modelsByClassId, Math.max(modelsByClassId.length, classId + 1));
+        models[classId] = new ModelWrapper(model, modelType);
+        return new ContextModels(models);
     }
 
     public <T> Optional<ModelWrapper> getModelFor(Class<T> modelType) {
-        return models.stream()
-                .filter(mw -> mw.getModelClass().equals(modelType))
-                .findFirst();
+        int classId = CLASS_IDS.get(modelType);
+        return classId < modelsByClassId.length ? Optional.ofNullable(modelsByClassId[classId]) : Optional.empty();
     }
 
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.scraping;
+
+/**
+ * Determines how tasks that make blocking HTTP requests (see {@link MakingHttpRequests}) are executed
+ */
+public enum ExecutionMode {
+
+    /**
+     * Blocking tasks run on a pool of platform threads bounded by the number of available processors
+     */
+    BOUNDED_THREAD_POOL,
+
+    /**
+     * Each blocking task runs on its own virtual thread so the number of concurrent requests is bounded only by the rate limiter
+     * and the client pools. Requires Java 21+ at runtime - on older JVMs an elastic pool of platform threads that is not bounded
+     * by the number of processors is used instead
+     */
+    VIRTUAL_THREADS
+
+}
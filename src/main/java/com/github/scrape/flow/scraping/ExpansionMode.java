@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.scraping;
+
+/**
+ * Determines when steps spawn the next steps for the elements they found
+ */
+public enum ExpansionMode {
+
+    /**
+     * Next steps are spawned for all found elements right away (unless the task queue is full)
+     */
+    EAGER,
+
+    /**
+     * Next steps are spawned for one found element at a time. The next element is only expanded when there is no other
+     * executable work, so memory use is proportional to the tasks in flight rather than to the number of elements on scraped pages
+     */
+    LAZY
+
+}
@@ -18,6 +18,8 @@ package com.github.scrape.flow.scraping;
 
 import lombok.*;
 
+import java.time.Duration;
+
 @ToString
 @Getter
 @Setter
@@ -25,16 +27,40 @@ import lombok.*;
 public class Options {
 
     private static final int REQUEST_RETRIES_MAX_DEFAULT = 1;
+    private static final int CONCURRENT_CPU_TASKS_MAX_DEFAULT = Runtime.getRuntime().availableProcessors();
+    private static final int CONCURRENT_NETWORK_TASKS_MAX_DEFAULT = Integer.MAX_VALUE; // gated by the rate limiter and throttling
+    private static final int QUEUED_TASKS_MAX_DEFAULT = 10_000;
+    private static final int OPEN_PAGES_MAX_DEFAULT = 10;
+    private static final int PUBLISHING_THREADS_DEFAULT = 1;
+    private static final int PUBLISHING_QUEUE_CAPACITY_DEFAULT = 1_000;
+    private static final int REORDER_BUFFER_SIZE_MAX_DEFAULT = 1_000;
+    private static final Duration REORDER_DELAY_MAX_DEFAULT = Duration.ofSeconds(10);
 
     private volatile int maxRequestRetries;
     private volatile boolean ignoreDuplicateURLs;  // TODO implement logic to actually ignore duplicates ...
+    private volatile ExecutionMode executionMode;
+    private volatile int maxConcurrentCpuTasks;
+    private volatile int maxConcurrentNetworkTasks;
+    private volatile int maxQueuedTasks;
+    private volatile ExpansionMode expansionMode;
+    private volatile TraversalStrategy traversalStrategy;
+    private volatile int maxOpenPages; // only applies to TraversalStrategy.HYBRID
+    private volatile int publishingThreads; // read when the first data gets published
+    private volatile int publishingQueueCapacity; // per listener
+    private volatile PublishingMode publishingMode;
+    private volatile int maxReorderBufferSize; // only applies to PublishingMode.BOUNDED_REORDER
+    private volatile Duration maxReorderDelay; // only applies to PublishingMode.BOUNDED_REORDER
 
     public Options() {
-        this(REQUEST_RETRIES_MAX_DEFAULT, false);
+        this(REQUEST_RETRIES_MAX_DEFAULT, false, ExecutionMode.BOUNDED_THREAD_POOL, CONCURRENT_CPU_TASKS_MAX_DEFAULT, CONCURRENT_NETWORK_TASKS_MAX_DEFAULT, QUEUED_TASKS_MAX_DEFAULT, ExpansionMode.EAGER,
+                TraversalStrategy.DEPTH_FIRST, OPEN_PAGES_MAX_DEFAULT, PUBLISHING_THREADS_DEFAULT, PUBLISHING_QUEUE_CAPACITY_DEFAULT,
+                PublishingMode.STRICT_ORDER, REORDER_BUFFER_SIZE_MAX_DEFAULT, REORDER_DELAY_MAX_DEFAULT);
     }
 
     public Options(Options options) {
-        this(options.maxRequestRetries, options.ignoreDuplicateURLs);
+        this(options.maxRequestRetries, options.ignoreDuplicateURLs, options.executionMode, options.maxConcurrentCpuTasks, options.maxConcurrentNetworkTasks, options.maxQueuedTasks, options.expansionMode,
+                options.traversalStrategy, options.maxOpenPages, options.publishingThreads, options.publishingQueueCapacity,
+                options.publishingMode, options.maxReorderBufferSize, options.maxReorderDelay);
     }
 
     public Options copy() {
@@ -18,13 +18,17 @@ package com.github.scrape.flow.scraping;
 
 import com.github.scrape.flow.execution.StepOrder;
 
+import javax.annotation.Nullable;
+import java.time.Duration;
 import java.util.List;
 
 public interface PageLoader<T> {
 
     /**
      * For internal lib uses only
+     *
+     * @param timeout the execution timeout of the loading step - applied by the client itself as the loading might not respond to interruption
      */
-    void loadPageAndExecuteNextSteps(String url, ScrapingContext ctx, List<ScrapingStep<?>> parsingSequence, StepOrder currStepOrder, ScrapingServices services, T client);
+    void loadPageAndExecuteNextSteps(String url, ScrapingContext ctx, List<ScrapingStep<?>> parsingSequence, StepOrder currStepOrder, ScrapingServices services, T client, @Nullable Duration timeout);
 
 }
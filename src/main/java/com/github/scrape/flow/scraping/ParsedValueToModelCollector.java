@@ -22,8 +22,6 @@ import com.github.scrape.flow.data.collectors.ModelWrapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.annotation.Nonnull;
-import java.util.List;
 import java.util.Optional;
 
 import static com.github.scrape.flow.data.collectors.Collector.AccumulatorType;
@@ -32,14 +30,15 @@ public class ParsedValueToModelCollector {
 
     private static Logger log = LogManager.getLogger(ParsedValueToModelCollector.class);
 
-    public static <T> void setParsedValueToModel(Collectors collectors, ScrapingContext ctx, T parsedValue, String stepName) {
+    public static <T> void setParsedValueToModel(StepExecutionPlan plan, ScrapingContext ctx, T parsedValue) {
+        String stepName = plan.getStepName();
         try {
             if (parsedValue == null) {
                 log.warn("{}: Parsed value is null -> cannot set to model ...", stepName);
+                return;
             }
-            List<Collector> cols = getCollectorsWithAccumulatorsForParsedValueType(collectors, parsedValue);
-
-            for (Collector col : cols) {
+            Collectors collectors = plan.getCollectors();
+            for (Collector col : plan.getAccumulatorsFor(parsedValue.getClass())) {
                 Optional<ModelWrapper> mw = ctx.getContextModels().getModelFor(col.getContainerClass());
                 if (mw.isPresent()) {
                     boolean valueIllegallySetMultipleTimes = col.getAccumulatorType().equals(AccumulatorType.ONE) && mw.get().isAlreadyApplied(collectors);
@@ -60,11 +59,4 @@ public class ParsedValueToModelCollector {
         }
     }
 
-    @Nonnull
-    private static <T> List<Collector> getCollectorsWithAccumulatorsForParsedValueType(Collectors collectors, T parsedValue) {
-        return collectors.getAccumulators().stream()
-                .filter(co -> co.getModelClass().equals(parsedValue.getClass()))
-                .collect(java.util.stream.Collectors.toList());
-    }
-
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.scraping;
+
+/**
+ * Determines the order in which finalized data gets published to listeners
+ */
+public enum PublishingMode {
+
+    /**
+     * Data is published in the order of the steps that produced it, regardless of the order in which the steps finish.
+     * A slow step holds back all data produced by the steps following it
+     */
+    STRICT_ORDER,
+
+    /**
+     * Data is published as soon as it is finalized
+     */
+    UNORDERED,
+
+    /**
+     * Like {@link #STRICT_ORDER} but data waits for earlier data only up to the configured reorder buffer size and delay.
+     * Beyond these limits data is published in order of the steps that produced it, skipping the data still being scraped
+     */
+    BOUNDED_REORDER
+
+}
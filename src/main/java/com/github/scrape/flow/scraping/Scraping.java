@@ -20,6 +20,7 @@ import com.github.scrape.flow.execution.StepHierarchyRepository;
 import com.github.scrape.flow.execution.StepOrder;
 import com.github.scrape.flow.throttling.ScrapingRateLimiterImpl;
 import lombok.Getter;
+import reactor.core.publisher.Flux;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
@@ -45,6 +46,16 @@ public class Scraping {
         this(new ScrapingServices(new ScrapingRateLimiterImpl(rqLimitPerTimeUnit, timeUnit)));
     }
 
+    /**
+     * @param rateLimitPerHost if true then the request limit applies to each host separately and tasks for different hosts
+     *                         are queued and dispatched independently of each other
+     */
+    public Scraping(int rqLimitPerTimeUnit, TimeUnit timeUnit, boolean rateLimitPerHost) {
+        this(rateLimitPerHost
+                ? new ScrapingServices(new ScrapingRateLimiterImpl(rqLimitPerTimeUnit, timeUnit), () -> new ScrapingRateLimiterImpl(rqLimitPerTimeUnit, timeUnit))
+                : new ScrapingServices(new ScrapingRateLimiterImpl(rqLimitPerTimeUnit, timeUnit)));
+    }
+
     Scraping(ScrapingServices services) {
         this.services = services;
     }
@@ -53,9 +64,32 @@ public class Scraping {
         startSequenceExecution();
     }
 
+    /**
+     * Starts the scraping and waits for it to finish. Whatever is still running after the timeout gets stopped
+     */
     public void start(Duration timeout) {
         startSequenceExecution();
-        this.awaitCompletion(timeout);
+        if (!this.awaitCompletion(timeout)) {
+            stop();
+        }
+    }
+
+    /**
+     * Stops the scraping right away - queued tasks are dropped, executing tasks are cancelled and all clients are released
+     */
+    public void stop() {
+        services.getTaskExecutor().cancelAll();
+        services.getClientAccessManager().releaseAllReservations();
+        services.getScrapedDataPublisher().completeSubscribers();
+    }
+
+    /**
+     * Stops the scraping after letting the already started work finish within the given time
+     */
+    public void stop(Duration drainTimeout) {
+        if (!this.awaitCompletion(drainTimeout)) {
+            stop();
+        }
     }
 
     private void startSequenceExecution() {
@@ -69,6 +103,7 @@ public class Scraping {
         this.scrapingSequence = sequence.getBranchRoot() != null ? sequence.getBranchRoot() : sequence; // TODO create copy here?
 //        this.scrapingSequence.setBranchRoot(sequence.getBranchRoot() != null ? sequence.getBranchRoot() : sequence);
         StepHierarchyRepository stepHierarchyRepository = StepHierarchyRepository.createFrom(this.scrapingSequence);
+        StepExecutionPlan.compileAll(stepHierarchyRepository);
         this.services.setStepHierarchyRepository(stepHierarchyRepository);
         return this;
     }
@@ -76,7 +111,36 @@ public class Scraping {
     // should be only exposed to the scraper responsible for running this Scraping instance
     @SuppressWarnings("UnusedReturnValue")
     public boolean awaitCompletion(Duration timeout) {
-        return services.getTaskExecutor().awaitCompletion(timeout);
+        long start = System.nanoTime();
+        if (!services.getTaskExecutor().awaitCompletion(timeout)) {
+            return false;
+        }
+        Duration remaining = timeout.minusNanos(System.nanoTime() - start);
+        if (!services.getScrapedDataPublisher().awaitDelivered(remaining.isNegative() ? Duration.ZERO : remaining)) {
+            return false;
+        }
+        services.getScrapedDataPublisher().completeSubscribers();
+        return true;
+    }
+
+    /**
+     * Emits the scraped models of the given class as an alternative to {@link com.github.scrape.flow.data.publishing.ScrapedDataListener}s.
+     * Needs to be subscribed to before the scraping starts. Loading of new pages pauses while subscribers stop requesting more data.
+     * Completes once {@link #awaitCompletion(Duration)} (also called by {@link #start(Duration)} and {@link #stop(Duration)})
+     * finds the scraping finished and all data delivered, or when the scraping gets stopped. Scraping started with {@link #start()}
+     * needs one of these to be called for the flux to complete
+     */
+    public <T> Flux<T> getScrapedData(Class<T> modelClass) {
+        return services.getScrapedDataPublisher().getScrapedData(modelClass);
+    }
+
+    /**
+     * @return the number of finalized data held back until data of the preceding steps gets published. Only
+     * {@link PublishingMode#STRICT_ORDER} and {@link PublishingMode#BOUNDED_REORDER} hold data back, the latter up to
+     * {@link Options#getMaxReorderBufferSize()}
+     */
+    public int getReorderBufferOccupancy() {
+        return services.getScrapedDataPublisher().getReorderBufferOccupancy();
     }
 
     public ConfigurableScraping getOptions() {
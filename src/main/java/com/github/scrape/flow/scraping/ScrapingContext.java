@@ -118,26 +118,26 @@ public class ScrapingContext {
         private StepOrder prevStepOrder;
         private DomNode node;
         private WebElement webElement;
-        private final ContextModels contextModelsCopy;
+        private ContextModels contextModels;
         private String parsedURL;
         private StepOrder recursiveRootStepOrder;
 
         private Builder(StepOrder prevStepOrder,
                         DomNode node,
                         WebElement webElement,
-                        ContextModels contextModelsCopy,
+                        ContextModels contextModels,
                         String parsedURL,
                         StepOrder recursiveRootStepOrder) {
             this.prevStepOrder = prevStepOrder;
             this.node = node;
             this.webElement = webElement;
-            this.contextModelsCopy = contextModelsCopy;
+            this.contextModels = contextModels;
             this.parsedURL = parsedURL;
             this.recursiveRootStepOrder = recursiveRootStepOrder;
         }
 
         private Builder(ScrapingContext ctx) {
-            this(ctx.prevStepOrder, ctx.node, ctx.webElement, ctx.contextModels.copy(), ctx.parsedURL, ctx.rootLoopedStepOrder);
+            this(ctx.prevStepOrder, ctx.node, ctx.webElement, ctx.contextModels, ctx.parsedURL, ctx.rootLoopedStepOrder);
         }
 
         public Builder setPrevStepOrder(StepOrder stepOrder) {
@@ -157,7 +157,7 @@ public class ScrapingContext {
 
         @SuppressWarnings("unused")
         public Builder addModel(Object model, Class<?> modelClass) {
-            this.contextModelsCopy.add(model, modelClass);
+            this.contextModels = this.contextModels.with(model, modelClass);
             return this;
         }
 
@@ -172,7 +172,7 @@ public class ScrapingContext {
         }
 
         public ScrapingContext build() {
-            return new ScrapingContext(prevStepOrder, node, webElement, contextModelsCopy, parsedURL, recursiveRootStepOrder);
+            return new ScrapingContext(prevStepOrder, node, webElement, contextModels, parsedURL, recursiveRootStepOrder);
         }
     }
 }
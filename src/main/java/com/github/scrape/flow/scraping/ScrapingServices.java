@@ -27,6 +27,8 @@ import com.github.scrape.flow.throttling.ThrottlingService;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.function.Supplier;
+
 /**
  * Encapsulates service singleton classes that need to be accessible to all steps
  */
@@ -54,14 +56,22 @@ public class ScrapingServices {
     private final ClientAccessOrderChecker clientAccessOrderChecker;
 
     public ScrapingServices(ScrapingRateLimiter scrapingRateLimiter) {
+        this(scrapingRateLimiter, null);
+    }
+
+    /**
+     * @param hostRateLimiterFactory if not null then tasks are sharded by their target host and each host gets its own rate limiter created by this factory;
+     *                               <code>scrapingRateLimiter</code> then only applies to tasks with an unknown host
+     */
+    public ScrapingServices(ScrapingRateLimiter scrapingRateLimiter, Supplier<ScrapingRateLimiter> hostRateLimiterFactory) {
         this.stepOrderGenerator = new StepOrderGenerator();
         this.throttlingService = new ThrottlingService();
         this.activeStepsTracker = new ActiveStepsTracker();
         this.clientReservationTracker = new ClientReservationTracker();
         this.stepAndDataRelationshipTracker = new StepAndDataRelationshipTracker(activeStepsTracker);
         this.exclusiveExecutionHandler = new ExclusiveExecutionHandler(activeStepsTracker);
-        this.scrapedDataPublisher = new ScrapedDataPublisher(stepAndDataRelationshipTracker);
         this.options = new Options();
+        this.scrapedDataPublisher = new ScrapedDataPublisher(stepAndDataRelationshipTracker, options);
         this.globalDebugging = new DebuggingOptions();
         // TODO create when first needed ...
         this.seleniumClientManager = new SeleniumClientManager(new SeleniumClientFactory("/Users/janis/Projects_Data/scrape-flow/chromedriver", false)); // TODO fix this mess
@@ -70,8 +80,13 @@ public class ScrapingServices {
         this.htmlUnitClientManager = new HtmlUnitClientManager(clientFactory);
         this.clientAccessOrderChecker = new ClientAccessOrderChecker(activeStepsTracker);
         this.clientAccessManager = new ClientAccessManager(clientReservationTracker, seleniumClientManager, htmlUnitClientManager, clientAccessOrderChecker);
-        this.taskExecutor = new TaskExecutorSingleQueue(throttlingService, exclusiveExecutionHandler, scrapingRateLimiter, activeStepsTracker, clientAccessManager);
-        this.taskService = new TaskService(taskExecutor, activeStepsTracker, scrapedDataPublisher, scrapingRateLimiter, options);
+        if (hostRateLimiterFactory != null) {
+            this.taskExecutor = new TaskExecutorShardedByHost(throttlingService, exclusiveExecutionHandler, scrapingRateLimiter, hostRateLimiterFactory, activeStepsTracker, clientAccessManager, options);
+        } else {
+            this.taskExecutor = new TaskExecutorSingleQueue(throttlingService, exclusiveExecutionHandler, scrapingRateLimiter, activeStepsTracker, clientAccessManager, options);
+        }
+        this.taskExecutor.setLoadingBackpressure(scrapedDataPublisher.getLoadingBackpressure());
+        this.taskService = new TaskService(taskExecutor, activeStepsTracker, scrapedDataPublisher, scrapingRateLimiter, options, stepOrderGenerator, clientAccessManager);
         this.htmlUnitSiteLoader = new HtmlUnitPageLoader();
         this.seleniumPageLoader = new SeleniumPageLoader();
     }
@@ -79,6 +94,7 @@ public class ScrapingServices {
     // needed to pass the dependency
     public void setStepHierarchyRepository(StepHierarchyRepository stepHierarchyRepository) {
         this.stepHierarchyRepository = stepHierarchyRepository;
+        this.activeStepsTracker.setStepHierarchyRepository(stepHierarchyRepository);
         this.clientAccessOrderChecker.setStepHierarchyRepository(stepHierarchyRepository);
         this.exclusiveExecutionHandler.setStepHierarchyRepository(stepHierarchyRepository);
     }
@@ -22,7 +22,11 @@ import com.github.scrape.flow.data.collectors.Collectors;
 import com.github.scrape.flow.debugging.DebuggingOptions;
 import com.github.scrape.flow.execution.StepOrder;
 import com.github.scrape.flow.execution.TaskDefinition;
+import com.github.scrape.flow.execution.TaskProfile;
+import lombok.extern.log4j.Log4j2;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -30,6 +34,7 @@ import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
+@Log4j2
 public abstract class ScrapingStep<C extends ScrapingStep<C>> {
 
     protected static final Function<String, String> NO_MAPPING = s -> s;
@@ -61,8 +66,18 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
 
     private ScrapingStep<?> branchRoot;
 
+    /**
+     * max duration of the execution of this step for each processed element; null if unlimited
+     */
+    private Duration executionTimeout;
+
     protected int stepNumber = StepCounter.next();
 
+    /**
+     * compiled when the scraping sequence is set; not copied with the other field values
+     */
+    private volatile StepExecutionPlan executionPlan;
+
     protected ScrapingStep(List<ScrapingStep<?>> nextSteps) {
         this.nextSteps = new ArrayList<>(Objects.requireNonNullElse(nextSteps, Collections.emptyList()));
     }
@@ -77,6 +92,7 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
     @SuppressWarnings("SameParameterValue")
     protected C setExclusiveExecution(boolean exclusiveExecution) {
         this.exclusiveExecution = exclusiveExecution;
+        this.executionPlan = null;
         return (C) this;
     }
 
@@ -85,6 +101,7 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
      */
     protected C setExecuteIf(StepExecutionCondition executeIf) {
         this.executeIf = executeIf;
+        this.executionPlan = null;
         return (C) this;
     }
 
@@ -100,11 +117,25 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
         return collectors;
     }
 
+    protected StepExecutionPlan getExecutionPlan() {
+        StepExecutionPlan plan = executionPlan;
+        if (plan == null) {
+            plan = StepExecutionPlan.compile(this);
+            executionPlan = plan;
+        }
+        return plan;
+    }
+
+    void setExecutionPlan(StepExecutionPlan executionPlan) {
+        this.executionPlan = executionPlan;
+    }
+
     /**
      * @return copy of this step
      */
     protected C addCollector(Collector collector) {
         this.collectors.add(collector);
+        this.executionPlan = null;
         return (C) this;
     }
 
@@ -122,6 +153,7 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
 
     protected C addNextStepAndReturnThis(ScrapingStep<?> nextStep) {
         this.nextSteps.add(nextStep);
+        this.executionPlan = null;
         return (C) this;
     }
 
@@ -143,6 +175,7 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
 
     protected void setName(String name) {
         this.name = name;
+        this.executionPlan = null;
     }
 
     protected abstract ClientType getClientType();
@@ -163,16 +196,65 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
         return (C) this;
     }
 
+    /**
+     * Limits the duration of the execution of this step for each processed element. When exceeded the thread executing the step
+     * is interrupted and once the execution stops the step is retried or fails the same way as when the loading fails.
+     * Page loads do not respond to interruption so the timeout is applied by the client to them as well. An execution that still
+     * does not stop within the same time (at least a second) gets abandoned and its client restarted.
+     * @return a copy of this step with the given <code>timeout</code> set
+     */
+    public C executionTimeout(Duration timeout) {
+        this.executionTimeout = timeout;
+        this.executionPlan = null;
+        return (C) this;
+    }
+
+    Duration getExecutionTimeout() {
+        return executionTimeout;
+    }
+
     protected String mapParsedValue(String value) {
         return value != null ? parsedValueMapper.apply(value) : null;
     }
 
     protected void submitForExecution(StepOrder stepOrder, Runnable runnable, ScrapingServices services) {
-        StepOrder stepHierarchyOrder = services.getStepHierarchyRepository().getMetadataFor(this).getStepHierarchyOrder();
-        TaskDefinition taskDefinition = new TaskDefinition(stepHierarchyOrder, stepOrder, isExclusiveExecution(), getName(), runnable, throttlingAllowed(), this instanceof MakingHttpRequests, getClientType(), getClientReservationType());
+        submitForExecution(stepOrder, runnable, services, null);
+    }
+
+    /**
+     * @param url the URL the step is going to make requests to - its host is used for sharding tasks by host; can be null if unknown
+     */
+    protected void submitForExecution(StepOrder stepOrder, Runnable runnable, ScrapingServices services, String url) {
+        TaskProfile profile = getExecutionPlan().getTaskProfile(services.getStepHierarchyRepository(), this);
+        TaskDefinition taskDefinition = new TaskDefinition(profile, stepOrder, runnable, parseHost(url));
         services.getTaskService().submitForExecution(taskDefinition);
     }
 
+    /**
+     * Submits the expansion of next steps for elements found by this step that was deferred because the task queue was full
+     * or because the elements are expanded lazily. The task reads the same page as this step and is held back by the executor accordingly
+     *
+     * @param stepOrder generated as a child of the step order of the execution that found the elements
+     */
+    protected void submitDeferredExpansion(StepOrder stepOrder, Runnable runnable, ScrapingServices services) {
+        TaskProfile profile = getExecutionPlan().getDeferredExpansionTaskProfile(services.getStepHierarchyRepository(), this);
+        TaskDefinition taskDefinition = new TaskDefinition(profile, stepOrder, runnable, null);
+        services.getTaskService().submitForExecution(taskDefinition);
+    }
+
+    private String parseHost(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : null;
+        } catch (IllegalArgumentException e) {
+            log.warn("{}: Failed to parse host from URL {}", getName(), url);
+            return null;
+        }
+    }
+
     /**
      * Enables logging the source codes if all the elements found by this step and processed.
      */
@@ -192,6 +274,7 @@ public abstract class ScrapingStep<C extends ScrapingStep<C>> {
         other.stepDebugging = stepDebugging.copy();
         other.setBranchRoot(this.branchRoot); // only if this is not the branch root ...
         other.stepNumber = this.stepNumber;
+        other.executionTimeout = this.executionTimeout;
         return (C) other;
     }
 
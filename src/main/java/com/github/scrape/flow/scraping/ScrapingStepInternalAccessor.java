@@ -21,6 +21,7 @@ import com.github.scrape.flow.debugging.DebuggingOptions;
 import com.github.scrape.flow.execution.StepOrder;
 import lombok.RequiredArgsConstructor;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -95,8 +96,16 @@ public class ScrapingStepInternalAccessor<C extends ScrapingStep<C>> {
         step.setExecuteIf(executeStepByModelDataCondition);
     }
 
+    public void submitDeferredExpansion(StepOrder stepOrder, Runnable runnable, ScrapingServices services) {
+        step.submitDeferredExpansion(stepOrder, runnable, services);
+    }
+
     public String getUserDefinedName() {
         return step.getUserDefinedName();
     }
 
+    public Duration getExecutionTimeout() {
+        return step.getExecutionTimeout();
+    }
+
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.scraping;
+
+import com.github.scrape.flow.clients.ClientReservationType;
+import com.github.scrape.flow.data.collectors.Collector;
+import com.github.scrape.flow.data.collectors.Collectors;
+import com.github.scrape.flow.debugging.DebuggingOptions;
+import com.github.scrape.flow.execution.StepHierarchyRepository;
+import com.github.scrape.flow.execution.StepMetadata;
+import com.github.scrape.flow.execution.StepOrder;
+import com.github.scrape.flow.execution.TaskProfile;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.*;
+
+/**
+ * Everything a step consults for each element it processes, resolved once when the scraping sequence gets set
+ * instead of being looked up again for every element
+ */
+@Immutable
+@Getter
+public class StepExecutionPlan {
+
+    private final String stepName;
+    private final StepExecutionCondition executeIf;
+    private final DebuggingOptions stepDebugging;
+    private final List<ScrapingStep<?>> nextSteps;
+    private final Collectors collectors;
+    private final StepModelsHandler modelsHandler;
+    // collectors with accumulators keyed by the type of the parsed value they accept
+    @Getter(AccessLevel.NONE)
+    private final Map<Class<?>, List<Collector>> accumulatorsByParsedValueType;
+    // null if the plan was not compiled together with the step hierarchy
+    @Getter(AccessLevel.NONE)
+    private final StepHierarchyRepository stepHierarchyRepository;
+    @Getter(AccessLevel.NONE)
+    private final StepMetadata stepMetadata;
+    /**
+     * True if the step only reads the page loaded by its ancestors and can be executed inline within the task of the step that spawned it.
+     * That is the case for reading steps without their own scheduling constraints when none of the steps sharing their client modify the page
+     * or require exclusive execution - nothing then needs to be ordered relative to them
+     */
+    private final boolean fusable;
+    // shared by all tasks of the step; null if the plan was not compiled together with the step hierarchy
+    @Getter(AccessLevel.NONE)
+    private final TaskProfile taskProfile;
+    @Getter(AccessLevel.NONE)
+    private final TaskProfile deferredExpansionTaskProfile;
+
+    private StepExecutionPlan(ScrapingStep<?> step, StepHierarchyRepository stepHierarchyRepository, StepMetadata stepMetadata, boolean fusable) {
+        this.stepName = step.getName();
+        this.executeIf = step.getExecuteIf();
+        this.stepDebugging = step.getStepDebugging();
+        this.nextSteps = List.copyOf(step.getNextSteps());
+        this.collectors = step.getCollectors();
+        this.modelsHandler = StepModelsHandler.createFor(step);
+        this.accumulatorsByParsedValueType = groupByModelClass(collectors.getAccumulators());
+        this.stepHierarchyRepository = stepHierarchyRepository;
+        this.stepMetadata = stepMetadata;
+        this.fusable = fusable;
+        this.taskProfile = stepMetadata != null ? createTaskProfile(step, stepMetadata, fusable) : null;
+        this.deferredExpansionTaskProfile = stepMetadata != null ? createDeferredExpansionTaskProfile(step, stepMetadata) : null;
+    }
+
+    /**
+     * Compiles the plans of all the steps of the given hierarchy and attaches them to the steps
+     */
+    public static void compileAll(StepHierarchyRepository stepHierarchyRepository) {
+        Set<StepOrder> regionsWithoutFusion = findClientRegionsWithoutFusion(stepHierarchyRepository);
+        for (StepMetadata metadata : stepHierarchyRepository.getAllMetadata()) {
+            ScrapingStep<?> step = metadata.getStep();
+            boolean fusable = isFusableByItself(step, metadata)
+                    && !regionsWithoutFusion.contains(getClientRegion(stepHierarchyRepository, metadata.getStepHierarchyOrder()));
+            step.setExecutionPlan(new StepExecutionPlan(step, stepHierarchyRepository, metadata, fusable));
+        }
+    }
+
+    /**
+     * For steps executed outside a compiled hierarchy
+     */
+    static StepExecutionPlan compile(ScrapingStep<?> step) {
+        return new StepExecutionPlan(step, null, null, false);
+    }
+
+    private static boolean isFusableByItself(ScrapingStep<?> step, StepMetadata metadata) {
+        return metadata.getClientReservationType() == ClientReservationType.READING
+                && !(step instanceof MakingHttpRequests)
+                && !step.isExclusiveExecution()
+                && step.getExecutionTimeout() == null;
+    }
+
+    /**
+     * A client region consists of a step loading a page (or the first step) and all its descendants that share its client
+     *
+     * @return hierarchy orders of the first steps of regions containing steps that modify the page or require exclusive execution
+     */
+    private static Set<StepOrder> findClientRegionsWithoutFusion(StepHierarchyRepository stepHierarchyRepository) {
+        Set<StepOrder> regions = new HashSet<>();
+        for (StepMetadata metadata : stepHierarchyRepository.getAllMetadata()) {
+            if (metadata.getClientReservationType() == ClientReservationType.MODIFYING || metadata.isExclusiveExecution()) {
+                regions.add(getClientRegion(stepHierarchyRepository, metadata.getStepHierarchyOrder()));
+            }
+        }
+        return regions;
+    }
+
+    private static StepOrder getClientRegion(StepHierarchyRepository stepHierarchyRepository, StepOrder hierarchyOrder) {
+        StepOrder current = hierarchyOrder;
+        while (stepHierarchyRepository.getMetadataFor(current).getClientReservationType() != ClientReservationType.LOADING) {
+            Optional<StepOrder> parent = current.getParent();
+            if (parent.isEmpty() || !stepHierarchyRepository.contains(parent.get())) {
+                break;
+            }
+            current = parent.get();
+        }
+        return current;
+    }
+
+    private static TaskProfile createTaskProfile(ScrapingStep<?> step, StepMetadata metadata, boolean fusable) {
+        return new TaskProfile(metadata.getStepHierarchyOrder(), step.isExclusiveExecution(), step.getName(), step.throttlingAllowed(),
+                step instanceof MakingHttpRequests, step.getClientType(), step.getClientReservationType(), step.getExecutionTimeout(), false, fusable);
+    }
+
+    private static TaskProfile createDeferredExpansionTaskProfile(ScrapingStep<?> step, StepMetadata metadata) {
+        return new TaskProfile(metadata.getStepHierarchyOrder(), false, step.getName() + "-deferred-expansion", false,
+                false, step.getClientType(), ClientReservationType.READING, step.getExecutionTimeout(), true, false);
+    }
+
+    private static Map<Class<?>, List<Collector>> groupByModelClass(List<Collector> accumulators) {
+        Map<Class<?>, List<Collector>> grouped = new HashMap<>();
+        for (Collector accumulator : accumulators) {
+            grouped.computeIfAbsent(accumulator.getModelClass(), k -> new ArrayList<>()).add(accumulator);
+        }
+        grouped.replaceAll((type, list) -> List.copyOf(list));
+        return Collections.unmodifiableMap(grouped);
+    }
+
+    public List<Collector> getAccumulatorsFor(Class<?> parsedValueType) {
+        return accumulatorsByParsedValueType.getOrDefault(parsedValueType, Collections.emptyList());
+    }
+
+    /**
+     * @return metadata of the step in the given hierarchy
+     */
+    public StepMetadata getStepMetadata(StepHierarchyRepository stepHierarchyRepository, ScrapingStep<?> step) {
+        if (stepMetadata != null && this.stepHierarchyRepository == stepHierarchyRepository) {
+            return stepMetadata;
+        }
+        return stepHierarchyRepository.getMetadataFor(step);
+    }
+
+    /**
+     * @return properties shared by all tasks executing the step in the given hierarchy
+     */
+    public TaskProfile getTaskProfile(StepHierarchyRepository stepHierarchyRepository, ScrapingStep<?> step) {
+        if (taskProfile != null && this.stepHierarchyRepository == stepHierarchyRepository) {
+            return taskProfile;
+        }
+        return createTaskProfile(step, stepHierarchyRepository.getMetadataFor(step), fusable);
+    }
+
+    /**
+     * @return properties shared by all tasks continuing the deferred expansion of elements found by the step in the given hierarchy
+     */
+    public TaskProfile getDeferredExpansionTaskProfile(StepHierarchyRepository stepHierarchyRepository, ScrapingStep<?> step) {
+        if (deferredExpansionTaskProfile != null && this.stepHierarchyRepository == stepHierarchyRepository) {
+            return deferredExpansionTaskProfile;
+        }
+        return createDeferredExpansionTaskProfile(step, stepHierarchyRepository.getMetadataFor(step));
+    }
+
+}
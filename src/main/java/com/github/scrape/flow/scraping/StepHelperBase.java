@@ -20,6 +20,9 @@ import com.github.scrape.flow.debugging.DebuggingOptions;
 import com.github.scrape.flow.execution.StepOrder;
 import lombok.extern.log4j.Log4j2;
 
+import java.util.Iterator;
+import java.util.function.Consumer;
+
 @Log4j2
 public class StepHelperBase {
 
@@ -33,6 +36,49 @@ public class StepHelperBase {
     }
 
 
+    /**
+     * Expands the next steps for each of the given elements. Once the task queue is full the expansion of the remaining elements
+     * is deferred to a separate task that gets executed after the queue drains. In the {@link ExpansionMode#LAZY} mode only
+     * one element is expanded at a time and the deferred task serves as a cursor over the remaining ones
+     *
+     * @param currStepOrder step order of the execution that found the elements
+     */
+    protected <E> void expandAll(Iterator<E> elements,
+                                 Consumer<E> expansion,
+                                 ScrapingStep<?> step,
+                                 StepOrder currStepOrder,
+                                 ScrapingServices services) {
+        boolean lazy = services.getOptions().getExpansionMode() == ExpansionMode.LAZY;
+        while (elements.hasNext()) {
+            if (services.getTaskExecutor().isQueueFull()) {
+                deferExpansion(elements, expansion, step, currStepOrder, services);
+                return;
+            }
+            expansion.accept(elements.next());
+            if (lazy && elements.hasNext()) {
+                deferExpansion(elements, expansion, step, currStepOrder, services);
+                return;
+            }
+        }
+    }
+
+    private <E> void deferExpansion(Iterator<E> elements,
+                                    Consumer<E> expansion,
+                                    ScrapingStep<?> step,
+                                    StepOrder currStepOrder,
+                                    ScrapingServices services) {
+        StepOrder deferredStepOrder = services.getStepOrderGenerator().genNextAfter(currStepOrder);
+        log.debug("{}: Deferring the expansion of remaining elements to {}", currStepOrder, deferredStepOrder);
+        Runnable runnable = () -> {
+            try {
+                expandAll(elements, expansion, step, currStepOrder, services);
+            } catch (Exception e) {
+                log.error("{} - {}: Error executing deferred expansion", deferredStepOrder, ScrapingStepInternalAccessor.of(step).getName(), e);
+            }
+        };
+        ScrapingStepInternalAccessor.of(step).submitDeferredExpansion(deferredStepOrder, runnable, services);
+    }
+
     protected void logFoundCount(String stepName, StepOrder currStepOrder, int count, DebuggingOptions globalDebugging, DebuggingOptions stepDebugging) {
         if (globalDebugging.isLogFoundElementsCount() || stepDebugging.isLogFoundElementsCount()) {
             log.info("{} - {}: found {} nodes/elements", currStepOrder, stepName, count);
@@ -21,8 +21,8 @@ import com.github.scrape.flow.data.collectors.Collectors;
 import com.github.scrape.flow.data.collectors.ModelWrapper;
 import com.github.scrape.flow.data.publishing.ModelToPublish;
 import com.github.scrape.flow.data.publishing.ScrapedDataListener;
+import com.github.scrape.flow.data.publishing.ScrapedDataPublisher;
 import com.github.scrape.flow.execution.StepOrder;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
 import java.util.ArrayList;
@@ -31,35 +31,45 @@ import java.util.Optional;
 import java.util.function.BiConsumer;
 
 @Log4j2
-@RequiredArgsConstructor
 public class StepModelsHandler {
 
     private final String stepName;
     private final Class<?> stepType;
-    private final Collectors stepCollectors;
+    private final List<Collector> modelSuppliers;
+    private final List<Collector> accumulators;
+
+    public StepModelsHandler(String stepName, Class<?> stepType, Collectors stepCollectors) {
+        this.stepName = stepName;
+        this.stepType = stepType;
+        this.modelSuppliers = List.copyOf(stepCollectors.getModelSuppliers());
+        this.accumulators = List.copyOf(stepCollectors.getAccumulators());
+    }
 
     public static StepModelsHandler createFor(ScrapingStep<?> step) {
         return new StepModelsHandler(step.getName(), step.getClass(), step.getCollectors());
     }
 
-    public StepModels createAndAccumulateModels(StepOrder currStepOrder, ContextModels currContextModels) {
+    /**
+     * @param publisher determines whether models of collectors without a listener have subscribers to be published to
+     */
+    public StepModels createAndAccumulateModels(StepOrder currStepOrder, ContextModels currContextModels, ScrapedDataPublisher publisher) {
 
-        ContextModels nextContextModels = currContextModels.copy();
+        ContextModels nextContextModels = currContextModels;
         List<ModelToPublish> modelToPublishList = new ArrayList<>();
 
         // generate models
-        for (Collector co : stepCollectors.getModelSuppliers()) {
+        for (Collector co : modelSuppliers) {
             Object model = co.getModelSupplier().get();
             Class<?> modelClass = co.getModelClass();
             ScrapedDataListener<Object> scrapedDataListener = co.getScrapedDataListener();
-            if (scrapedDataListener != null) {
+            if (scrapedDataListener != null || publisher.hasSubscribers(modelClass)) {
                 modelToPublishList.add(new ModelToPublish(model, modelClass, scrapedDataListener));
             }
-            nextContextModels.add(model, modelClass);
+            nextContextModels = nextContextModels.with(model, modelClass);
         }
 
         // populate containers with generated models ...
-        for (Collector op : stepCollectors.getAccumulators()) {
+        for (Collector op : accumulators) {
             BiConsumer<Object, Object> accumulator = op.getAccumulator();
 
             Class<?> containerClass = op.getContainerClass();
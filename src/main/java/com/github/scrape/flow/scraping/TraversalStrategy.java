@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.scraping;
+
+/**
+ * Determines the order in which the executor picks the next steps to execute from all the steps that are ready
+ */
+public enum TraversalStrategy {
+
+    /**
+     * Steps of earlier branches of the scraping sequence are executed first. Data models get finished and published
+     * and loaded pages get released as early as possible
+     */
+    DEPTH_FIRST,
+
+    /**
+     * Steps closer to the root of the scraping sequence are executed first. Pages get loaded as soon as possible
+     * which saturates the clients
+     */
+    BREADTH_FIRST,
+
+    /**
+     * Breadth-first but with a limit on the number of pages open at once (see {@link Options#getMaxOpenPages()}).
+     * Once reached, no new pages are loaded until some of the open ones are fully processed
+     */
+    HYBRID
+
+}
@@ -53,7 +53,7 @@ public class HtmlUnitDownloadImage extends HtmlUnitScrapingStep<HtmlUnitDownload
             try {
                 URL imageURL = new URL(ctx.getParsedURL());
                 BufferedImage bufferedImage = ImageIO.read(imageURL);
-                ParsedValueToModelCollector.setParsedValueToModel(getCollectors(), ctx, bufferedImage, getName());
+                ParsedValueToModelCollector.setParsedValueToModel(getExecutionPlan(), ctx, bufferedImage);
 
                 log.debug("Success downloading image");
             } catch (Exception e) {
@@ -61,7 +61,7 @@ public class HtmlUnitDownloadImage extends HtmlUnitScrapingStep<HtmlUnitDownload
             }
             getHelper(services).execute(nodesSearch, ctx, stepOrder);
         };
-        submitForExecution(stepOrder, runnable, services);
+        submitForExecution(stepOrder, runnable, services, ctx.getParsedURL());
         return stepOrder;
     }
 
@@ -51,7 +51,8 @@ public class HtmlUnitNavigateToParsedLink extends HtmlUnitScrapingStep<HtmlUnitN
                 Optional<ClientOperator<WebClient>> operator = services.getClientAccessManager().getHtmlUnitClient(stepOrder);
                 if (operator.isPresent()) {
                     // TODO if this step type has collectors then we need similar logic as in Wrapper ...
-                    services.getHtmlUnitSiteLoader().loadPageAndExecuteNextSteps(ctx.getParsedURL(), ctx, ScrapingStepInternalAccessor.of(this).getNextSteps(), stepOrder, services, operator.get());
+                    services.getHtmlUnitSiteLoader().loadPageAndExecuteNextSteps(ctx.getParsedURL(), ctx, ScrapingStepInternalAccessor.of(this).getNextSteps(), stepOrder, services, operator.get(),
+                        ScrapingStepInternalAccessor.of(this).getExecutionTimeout());
                 } else {
                     log.error("No client!");
                 }
@@ -60,7 +61,7 @@ public class HtmlUnitNavigateToParsedLink extends HtmlUnitScrapingStep<HtmlUnitN
             }
         };
 
-        submitForExecution(stepOrder, runnable, services);
+        submitForExecution(stepOrder, runnable, services, ctx.getParsedURL());
 
         return stepOrder;
     }
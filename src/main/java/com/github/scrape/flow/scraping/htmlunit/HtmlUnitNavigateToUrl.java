@@ -52,13 +52,14 @@ public class HtmlUnitNavigateToUrl extends HtmlUnitScrapingStep<HtmlUnitNavigate
             Optional<ClientOperator<WebClient>> operator = services.getClientAccessManager().getHtmlUnitClient(stepOrder);
             if (operator.isPresent()) {
                 // TODO if this step type has collectors then we need similar logic as in the helper ...
-                services.getHtmlUnitSiteLoader().loadPageAndExecuteNextSteps(url, ctx, ScrapingStepInternalAccessor.of(this).getNextSteps(), stepOrder, services, operator.get());
+                services.getHtmlUnitSiteLoader().loadPageAndExecuteNextSteps(url, ctx, ScrapingStepInternalAccessor.of(this).getNextSteps(), stepOrder, services, operator.get(),
+                        ScrapingStepInternalAccessor.of(this).getExecutionTimeout());
             } else {
                 log.error("No client!");
             }
         };
 
-        submitForExecution(stepOrder, runnable, services);
+        submitForExecution(stepOrder, runnable, services, url);
 
         return stepOrder;
     }
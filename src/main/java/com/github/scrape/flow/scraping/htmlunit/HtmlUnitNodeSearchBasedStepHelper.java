@@ -29,6 +29,7 @@ import java.util.function.Supplier;
 @Log4j2
 public class HtmlUnitNodeSearchBasedStepHelper extends StepHelperBase {
 
+    private final HtmlUnitScrapingStep<?> step;
     private final String stepName;
     private final NextStepsHandler nextStepsHandler;
     private final DebuggingOptions globalDebugging;
@@ -39,26 +40,27 @@ public class HtmlUnitNodeSearchBasedStepHelper extends StepHelperBase {
     private final StepExecutionCondition executionCondition;
     private final ScrapingServices services;
 
-    public static HtmlUnitNodeSearchBasedStepHelper createFor(HtmlUnitScrapingStep<?> step, DebuggingOptions globalDebugging, ScrapingServices services) {
-        return createFor(step, globalDebugging, services, new NextStepsAsDefinedByUser());
+    public static HtmlUnitNodeSearchBasedStepHelper createFor(HtmlUnitScrapingStep<?> step, StepExecutionPlan plan, DebuggingOptions globalDebugging, ScrapingServices services) {
+        return createFor(step, plan, globalDebugging, services, new NextStepsAsDefinedByUser());
     }
 
-    public static HtmlUnitNodeSearchBasedStepHelper createFor(HtmlUnitScrapingStep<?> step, DebuggingOptions globalDebugging, ScrapingServices services, NextStepsHandler nextStepsHandler) {
-        ScrapingStepInternalAccessor<?> internalAccessor = ScrapingStepInternalAccessor.of(step);
+    public static HtmlUnitNodeSearchBasedStepHelper createFor(HtmlUnitScrapingStep<?> step, StepExecutionPlan plan, DebuggingOptions globalDebugging, ScrapingServices services, NextStepsHandler nextStepsHandler) {
         return new HtmlUnitNodeSearchBasedStepHelper(
-                internalAccessor.getName(),
+                step,
+                plan.getStepName(),
                 nextStepsHandler,
                 globalDebugging,
-                internalAccessor.getStepDebugging(),
+                plan.getStepDebugging(),
                 step.getFilters(),
-                internalAccessor.getNextSteps(),
-                StepModelsHandler.createFor(step),
-                internalAccessor.getExecuteIf(),
+                plan.getNextSteps(),
+                plan.getModelsHandler(),
+                plan.getExecuteIf(),
                 services
         );
     }
 
-    public HtmlUnitNodeSearchBasedStepHelper(String stepName,
+    public HtmlUnitNodeSearchBasedStepHelper(HtmlUnitScrapingStep<?> step,
+                                             String stepName,
                                              NextStepsHandler nextStepsHandler,
                                              DebuggingOptions globalDebugging,
                                              DebuggingOptions stepDebugging,
@@ -67,6 +69,7 @@ public class HtmlUnitNodeSearchBasedStepHelper extends StepHelperBase {
                                              StepModelsHandler modelsHandler,
                                              StepExecutionCondition executionCondition,
                                              ScrapingServices services) {
+        this.step = step;
         this.stepName = stepName;
         this.nextStepsHandler = nextStepsHandler;
         this.globalDebugging = globalDebugging;
@@ -88,17 +91,7 @@ public class HtmlUnitNodeSearchBasedStepHelper extends StepHelperBase {
             List<DomNode> filteredNodes = FilterUtils.filter(foundNodes, filters, globalDebugging);
             logFoundCount(stepName, currStepOrder, filteredNodes.size(), globalDebugging, stepDebugging);
 
-            for (DomNode node : filteredNodes) {
-                // TODO include in debug optiosn ...
-//                System.out.println(node.getCanonicalXPath());
-                logNodeSourceCode(node, globalDebugging);
-
-                StepModels stepModels = modelsHandler.createAndAccumulateModels(currStepOrder, ctx.getContextModels());
-
-                SpawnedSteps spawnedSteps = executeNextSteps(currStepOrder, node, ctx, stepModels.getNextContextModels(), services);
-
-                handleModels(currStepOrder, services, stepModels, spawnedSteps);
-            }
+            expandAll(filteredNodes.iterator(), node -> expand(node, ctx, currStepOrder), step, currStepOrder, services);
 
         } catch (Exception e) {
             log.error("{} - {}: Error executing step", currStepOrder, stepName, e);
@@ -106,6 +99,18 @@ public class HtmlUnitNodeSearchBasedStepHelper extends StepHelperBase {
     }
 
 
+    private void expand(DomNode node, ScrapingContext ctx, StepOrder currStepOrder) {
+        // TODO include in debug optiosn ...
+//        System.out.println(node.getCanonicalXPath());
+        logNodeSourceCode(node, globalDebugging);
+
+        StepModels stepModels = modelsHandler.createAndAccumulateModels(currStepOrder, ctx.getContextModels(), services.getScrapedDataPublisher());
+
+        SpawnedSteps spawnedSteps = executeNextSteps(currStepOrder, node, ctx, stepModels.getNextContextModels(), services);
+
+        handleModels(currStepOrder, services, stepModels, spawnedSteps);
+    }
+
     private void logNodeSourceCode(DomNode node, DebuggingOptions globalDebugging) {
         if (!(node instanceof Page)
                 && (globalDebugging.isLogFoundElementsSource() || stepDebugging.isLogFoundElementsSource())
@@ -124,7 +129,7 @@ public class HtmlUnitNodeSearchBasedStepHelper extends StepHelperBase {
                 currStepOrder,
                 node,
                 null,
-                nextContextModels.copy(),
+                nextContextModels,
                 ctx.getParsedURL(),
                 ctx.getRootLoopedStepOrder()
         );
@@ -26,7 +26,9 @@ import com.github.scrape.flow.scraping.*;
 import lombok.extern.log4j.Log4j2;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,15 +45,16 @@ public class HtmlUnitPageLoader implements PageLoader<ClientOperator<WebClient>>
                                             List<ScrapingStep<?>> nextSteps,
                                             StepOrder currStepOrder,
                                             ScrapingServices services,
-                                            ClientOperator<WebClient> clientOperator) {
-        loadPage(url, currStepOrder, clientOperator).ifPresent(page1 -> {
+                                            ClientOperator<WebClient> clientOperator,
+                                            @Nullable Duration timeout) {
+        loadPage(url, currStepOrder, clientOperator, timeout).ifPresent(page1 -> {
             ScrapingContext nextCtx = ctx.toBuilder().setNode(page1).setPrevStepOrder(currStepOrder).build();
             executeNextSteps(nextCtx, nextSteps, services);
         });
     }
 
-    private Optional<HtmlPage> loadPage(String url, @Nullable StepOrder currStepOrder, ClientOperator<WebClient> clientOperator) {
-        return loadHtmlPage(url, clientOperator, currStepOrder);
+    private Optional<HtmlPage> loadPage(String url, @Nullable StepOrder currStepOrder, ClientOperator<WebClient> clientOperator, @Nullable Duration timeout) {
+        return loadHtmlPage(url, clientOperator, currStepOrder, timeout);
     }
 
 
@@ -59,14 +62,15 @@ public class HtmlUnitPageLoader implements PageLoader<ClientOperator<WebClient>>
         nextSteps.forEach(s -> ScrapingStepInternalAccessor.of(s).execute(ctx, services));
     }
 
-    private Optional<HtmlPage> loadHtmlPage(String pageUrl, ClientOperator<WebClient> clientOperator, @Nullable StepOrder currStepOrder) {
+    private Optional<HtmlPage> loadHtmlPage(String pageUrl, ClientOperator<WebClient> clientOperator, @Nullable StepOrder currStepOrder, @Nullable Duration timeout) {
         // TODO someway somehow we need to make this retrievable ...
         String logInfo = currStepOrder != null ? currStepOrder + " - " : "";
         try {
             String windowName = clientOperator.getClient().getCurrentWindow().getName();
             log.info("{}Loading page in client {} at URL: {}", logInfo, clientOperator.getClientId(), pageUrl);
             URL url = new URL(pageUrl);
-            Page page = clientOperator.getClient().getPage(url);  // we have one clientOperator instance per thread so this call is ok -> each client will have its own "current top WebWindow"
+            // we have one clientOperator instance per thread so this call is ok -> each client will have its own "current top WebWindow"
+            Page page = timeout != null ? getPageWithinTimeout(clientOperator.getClient(), url, timeout) : clientOperator.getClient().getPage(url);
             WebResponse resp = page.getWebResponse();
             int statusCode = resp.getStatusCode();
             if (statusCode >= 400) {
@@ -89,6 +93,19 @@ public class HtmlUnitPageLoader implements PageLoader<ClientOperator<WebClient>>
         }
     }
 
+    /**
+     * Reading from the connection does not respond to interruption so the timeout of the step needs to be applied by the client itself
+     */
+    private Page getPageWithinTimeout(WebClient client, URL url, Duration timeout) throws IOException {
+        int previous = client.getOptions().getTimeout();
+        client.getOptions().setTimeout((int) Math.min(timeout.toMillis(), Integer.MAX_VALUE));
+        try {
+            return client.getPage(url);
+        } finally {
+            client.getOptions().setTimeout(previous);
+        }
+    }
+
     private void printPageToConsole(HtmlPage page) {
         System.out.println(page.asXml());
     }
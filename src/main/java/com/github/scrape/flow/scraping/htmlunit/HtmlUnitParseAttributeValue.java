@@ -65,7 +65,7 @@ public class HtmlUnitParseAttributeValue extends HtmlUnitScrapingStep<HtmlUnitPa
                         String mappedVal = mapParsedValue(value);
                         log.debug("{} - {}: Parsed value: {}", stepOrder, getName(), mappedVal);
 
-                        ParsedValueToModelCollector.setParsedValueToModel(this.getCollectors(), ctx, mappedVal, getName());
+                        ParsedValueToModelCollector.setParsedValueToModel(getExecutionPlan(), ctx, mappedVal);
 
                         Supplier<List<DomNode>> nodesSearch = () -> List.of(ctx.getNode()); // just resend the node ...
                         getHelper(services).execute(nodesSearch, ctx, stepOrder);
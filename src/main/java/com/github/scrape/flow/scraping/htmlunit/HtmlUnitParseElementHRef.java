@@ -61,7 +61,7 @@ public class HtmlUnitParseElementHRef extends HtmlUnitScrapingStep<HtmlUnitParse
                     String mappedVal = mapParsedValue(href);
                     log.debug("{} - {}: Parsed href: {}", stepOrder, getName(), mappedVal);
 
-                    ParsedValueToModelCollector.setParsedValueToModel(this.getCollectors(), ctx, mappedVal, getName());
+                    ParsedValueToModelCollector.setParsedValueToModel(getExecutionPlan(), ctx, mappedVal);
 
                     Supplier<List<DomNode>> nodesSearch = () -> List.of(ctx.getNode()); // just resend the node ...
                     ScrapingContext ctxCopy = ctx.toBuilder().setParsedURL(mappedVal).build();
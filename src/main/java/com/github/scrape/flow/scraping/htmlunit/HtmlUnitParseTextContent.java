@@ -56,7 +56,7 @@ public class HtmlUnitParseTextContent extends HtmlUnitScrapingStep<HtmlUnitParse
 
             String mappedVal = mapParsedValue(tc);
 
-            ParsedValueToModelCollector.setParsedValueToModel(this.getCollectors(), ctx, mappedVal, getName());
+            ParsedValueToModelCollector.setParsedValueToModel(getExecutionPlan(), ctx, mappedVal);
         };
 
         submitForExecution(stepOrder, runnable, services);
@@ -37,11 +37,11 @@ public abstract class HtmlUnitScrapingStep<C extends HtmlUnitScrapingStep<C>>
     }
 
     protected HtmlUnitNodeSearchBasedStepHelper getHelper(ScrapingServices services) {
-        return HtmlUnitNodeSearchBasedStepHelper.createFor(this, services.getGlobalDebugging(), services);
+        return HtmlUnitNodeSearchBasedStepHelper.createFor(this, getExecutionPlan(), services.getGlobalDebugging(), services);
     }
 
     protected HtmlUnitNodeSearchBasedStepHelper getHelper(ScrapingServices services, NextStepsHandler nextStepsHandler) {
-        return HtmlUnitNodeSearchBasedStepHelper.createFor(this, services.getGlobalDebugging(), services, nextStepsHandler);
+        return HtmlUnitNodeSearchBasedStepHelper.createFor(this, getExecutionPlan(), services.getGlobalDebugging(), services, nextStepsHandler);
     }
 
     protected C doAddFilter(Filter<DomNode> filter) {
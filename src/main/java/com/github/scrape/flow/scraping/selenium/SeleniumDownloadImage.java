@@ -53,7 +53,7 @@ public class SeleniumDownloadImage extends SeleniumScrapingStep<SeleniumDownload
             try {
                 URL imageURL = new URL(ctx.getParsedURL());
                 BufferedImage bufferedImage = ImageIO.read(imageURL);
-                ParsedValueToModelCollector.setParsedValueToModel(getCollectors(), ctx, bufferedImage, getName());
+                ParsedValueToModelCollector.setParsedValueToModel(getExecutionPlan(), ctx, bufferedImage);
 
                 log.debug("Success downloading image");
             } catch (Exception e) {
@@ -61,7 +61,7 @@ public class SeleniumDownloadImage extends SeleniumScrapingStep<SeleniumDownload
             }
             getHelper().execute(elementSearch, ctx, stepOrder, services);
         };
-        submitForExecution(stepOrder, runnable, services);
+        submitForExecution(stepOrder, runnable, services, ctx.getParsedURL());
         return stepOrder;
     }
 
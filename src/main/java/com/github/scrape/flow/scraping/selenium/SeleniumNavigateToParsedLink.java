@@ -69,7 +69,7 @@ public class SeleniumNavigateToParsedLink extends SeleniumScrapingStep<SeleniumN
             }
         };
 
-        submitForExecution(stepOrder, runnable, services);
+        submitForExecution(stepOrder, runnable, services, ctx.getParsedURL());
 
         return stepOrder;
     }
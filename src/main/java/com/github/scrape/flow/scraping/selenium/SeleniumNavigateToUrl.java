@@ -50,14 +50,15 @@ public class SeleniumNavigateToUrl extends SeleniumScrapingStep<SeleniumNavigate
         Runnable runnable = () -> {
             Optional<ClientOperator<WebDriver>> operator = services.getClientAccessManager().getSeleniumClient(stepOrder);
             if (operator.isPresent()) {
-                services.getSeleniumPageLoader().loadPageAndExecuteNextSteps(url, ctx, ScrapingStepInternalAccessor.of(this).getNextSteps(), stepOrder, services, operator.get());
+                services.getSeleniumPageLoader().loadPageAndExecuteNextSteps(url, ctx, ScrapingStepInternalAccessor.of(this).getNextSteps(), stepOrder, services, operator.get(),
+                        ScrapingStepInternalAccessor.of(this).getExecutionTimeout());
                 // TODO wait for page loading to finish ... someway?
             } else {
                 log.error("No client!");
             }
         };
 
-        submitForExecution(stepOrder, runnable, services);
+        submitForExecution(stepOrder, runnable, services, url);
 
         return stepOrder;
     }
@@ -25,6 +25,7 @@ import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
 import javax.annotation.Nullable;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,8 +41,9 @@ public class SeleniumPageLoader implements PageLoader<ClientOperator<WebDriver>>
                                             List<ScrapingStep<?>> parsingSequences,
                                             StepOrder currStepOrder,
                                             ScrapingServices services,
-                                            ClientOperator<WebDriver> clientOperator) {
-        loadPage(url, currStepOrder, clientOperator).ifPresent(rootWebElement -> {
+                                            ClientOperator<WebDriver> clientOperator,
+                                            @Nullable Duration timeout) {
+        loadPage(url, currStepOrder, clientOperator, timeout).ifPresent(rootWebElement -> {
             ScrapingContext nextCtx = ctx.toBuilder()
                     .setWebElement(rootWebElement)
                     .setPrevStepOrder(currStepOrder)
@@ -50,22 +52,26 @@ public class SeleniumPageLoader implements PageLoader<ClientOperator<WebDriver>>
         });
     }
 
-    private Optional<WebElement> loadPage(String url, @Nullable StepOrder currStepOrder, ClientOperator<WebDriver> clientOperator) {
-        return loadPage(url, clientOperator, currStepOrder);
+    private Optional<WebElement> loadPage(String url, @Nullable StepOrder currStepOrder, ClientOperator<WebDriver> clientOperator, @Nullable Duration timeout) {
+        return loadPage(url, clientOperator, currStepOrder, timeout);
     }
 
     private void executeNextSteps(ScrapingContext ctx, List<ScrapingStep<?>> parsingSequences, ScrapingServices services) {
         parsingSequences.forEach(s -> ScrapingStepInternalAccessor.of(s).execute(ctx, services));
     }
 
-    private Optional<WebElement> loadPage(String pageUrl, ClientOperator<WebDriver> clientOperator, @Nullable StepOrder currStepOrder) {
+    private Optional<WebElement> loadPage(String pageUrl, ClientOperator<WebDriver> clientOperator, @Nullable StepOrder currStepOrder, @Nullable Duration timeout) {
         String logInfo = currStepOrder != null ? currStepOrder + " - " : "";
         try {
             log.info("{}Loading page URL: {}", logInfo, pageUrl);
             WebDriver client = clientOperator.getClient();
-            client.get(pageUrl);  // we have one clientOperator instance per thread so this call is ok -> each client will have its own "current top WebWindow"
+            // we have one clientOperator instance per thread so this call is ok -> each client will have its own "current top WebWindow"
+            if (timeout != null) {
+                getWithinTimeout(client, pageUrl, timeout);
+            } else {
+                client.get(pageUrl);
+            }
             // https://www.browserstack.com/guide/selenium-wait-for-page-to-load
-//            client.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(10)); // TODO ... uncomment?
 //            client.manage().window().maximize();
             WebElement root = client.findElement(By.tagName("html"));
 
@@ -78,5 +84,19 @@ public class SeleniumPageLoader implements PageLoader<ClientOperator<WebDriver>>
         }
     }
 
+    /**
+     * WebDriver.get() does not respond to interruption so the timeout of the step needs to be applied by the browser itself
+     */
+    private void getWithinTimeout(WebDriver client, String pageUrl, Duration timeout) {
+        WebDriver.Timeouts timeouts = client.manage().timeouts();
+        Duration previous = timeouts.getPageLoadTimeout();
+        timeouts.pageLoadTimeout(timeout);
+        try {
+            client.get(pageUrl);
+        } finally {
+            timeouts.pageLoadTimeout(previous);
+        }
+    }
+
 
 }
@@ -59,7 +59,7 @@ public class SeleniumParseElementHRef extends SeleniumScrapingStep<SeleniumParse
                     String mappedVal = mapParsedValue(href);
                     log.debug("{} - {}: Parsed href: {}", stepOrder, getName(), mappedVal);
 
-                    ParsedValueToModelCollector.setParsedValueToModel(this.getCollectors(), ctx, mappedVal, getName());
+                    ParsedValueToModelCollector.setParsedValueToModel(getExecutionPlan(), ctx, mappedVal);
 
                     Supplier<List<WebElement>> nodesSearch = () -> List.of(ctx.getWebElement()); // just resend the node ...
                     ScrapingContext ctxCopy = ctx.toBuilder().setParsedURL(mappedVal).build();
@@ -53,7 +53,7 @@ public class SeleniumParseTextContent extends SeleniumScrapingStep<SeleniumParse
 
             String mappedVal = mapParsedValue(tc);
 
-            ParsedValueToModelCollector.setParsedValueToModel(this.getCollectors(), ctx, mappedVal, getName());
+            ParsedValueToModelCollector.setParsedValueToModel(getExecutionPlan(), ctx, mappedVal);
         };
 
         submitForExecution(stepOrder, runnable, services);
@@ -39,11 +39,11 @@ public abstract class SeleniumScrapingStep<C extends SeleniumScrapingStep<C>>
     }
 
     protected SeleniumStepHelper getHelper() {
-        return new SeleniumStepHelper(this, getExecuteIf());
+        return new SeleniumStepHelper(this, getExecutionPlan());
     }
 
     protected SeleniumStepHelper getHelper(NextStepsHandler nextStepsHandler) {
-        return new SeleniumStepHelper(this, nextStepsHandler, getExecuteIf());
+        return new SeleniumStepHelper(this, nextStepsHandler, getExecutionPlan());
     }
 
     protected C addFilter(Filter<WebElement> filter) {
@@ -29,22 +29,20 @@ import java.util.function.Supplier;
 public class SeleniumStepHelper extends StepHelperBase {
 
     private final SeleniumScrapingStep<?> step;
+    private final StepExecutionPlan plan;
     private final NextStepsHandler nextStepsHandler;
-    private final StepExecutionCondition executionCondition;
 
     public SeleniumStepHelper(SeleniumScrapingStep<?> step,
-                              StepExecutionCondition executionCondition) {
-        this.step = step;
-        this.executionCondition = executionCondition;
-        this.nextStepsHandler = new NextStepsAsDefinedByUser();
+                              StepExecutionPlan plan) {
+        this(step, new NextStepsAsDefinedByUser(), plan);
     }
 
     public SeleniumStepHelper(SeleniumScrapingStep<?> step,
                               NextStepsHandler nextStepsHandler,
-                              StepExecutionCondition executionCondition) {
+                              StepExecutionPlan plan) {
         this.step = step;
         this.nextStepsHandler = nextStepsHandler;
-        this.executionCondition = executionCondition;
+        this.plan = plan;
     }
 
     public void execute(Supplier<List<WebElement>> elementsSearch,
@@ -53,8 +51,8 @@ public class SeleniumStepHelper extends StepHelperBase {
                         ScrapingServices services) { // TODO remove services from here ...
         String stepName = null;
         try {
-            stepName = ScrapingStepInternalAccessor.of(step).getName();
-            if (!executionCondition.canExecute(stepName, ctx.getContextModels())) {
+            stepName = plan.getStepName();
+            if (!plan.getExecuteIf().canExecute(stepName, ctx.getContextModels())) {
                 return;
             }
             long start = System.currentTimeMillis();
@@ -67,19 +65,9 @@ public class SeleniumStepHelper extends StepHelperBase {
             } else {
                 filteredElements = FilterUtils.filter(foundElements, step.getFilters(), services.getGlobalDebugging());
             }
-            logFoundCount(stepName, currStepOrder, filteredElements.size(), services.getGlobalDebugging(), ScrapingStepInternalAccessor.of(step).getStepDebugging());
-
-            for (WebElement elem : filteredElements) {
-
-                logElementSourceCode(elem, services.getGlobalDebugging());
+            logFoundCount(stepName, currStepOrder, filteredElements.size(), services.getGlobalDebugging(), plan.getStepDebugging());
 
-                StepModelsHandler modelsHandler = StepModelsHandler.createFor(step);
-                StepModels stepModels = modelsHandler.createAndAccumulateModels(currStepOrder, ctx.getContextModels());
-
-                SpawnedSteps spawnedSteps = executeNextSteps(currStepOrder, elem, ctx, stepModels.getNextContextModels(), services);
-
-                handleModels(currStepOrder, services, stepModels, spawnedSteps);
-            }
+            expandAll(filteredElements.iterator(), elem -> expand(elem, ctx, currStepOrder, services), step, currStepOrder, services);
             log.debug("Duration: {} for step {} {}", (end - start), currStepOrder, stepName);
 
         } catch (Exception e) {
@@ -88,11 +76,21 @@ public class SeleniumStepHelper extends StepHelperBase {
     }
 
 
+    private void expand(WebElement elem, ScrapingContext ctx, StepOrder currStepOrder, ScrapingServices services) {
+        logElementSourceCode(elem, services.getGlobalDebugging());
+
+        StepModels stepModels = plan.getModelsHandler().createAndAccumulateModels(currStepOrder, ctx.getContextModels(), services.getScrapedDataPublisher());
+
+        SpawnedSteps spawnedSteps = executeNextSteps(currStepOrder, elem, ctx, stepModels.getNextContextModels(), services);
+
+        handleModels(currStepOrder, services, stepModels, spawnedSteps);
+    }
+
     // TODO rework ...
     private void logElementSourceCode(WebElement element, DebuggingOptions globalDebugging) {
         if (globalDebugging.isLogFoundElementsSource()) {
             // TODO is this even possible ? Seems not to be ... if yes, then only log elements that are not the root .. html tag ...
-            String step = ScrapingStepInternalAccessor.of(this.step).getName();
+            String step = plan.getStepName();
 //            log.info("Source for step {} \n{}", step, element);
             try {
                 log.info("Xpath for element found in step {}: {}", step, SeleniumUtils.generateXPath(element, ""));
@@ -112,7 +110,7 @@ public class SeleniumStepHelper extends StepHelperBase {
                 currStepOrder,
                 null,
                 webElement,
-                nextContextModels.copy(),
+                nextContextModels,
                 // TODO send parsed text as well? Probably not, the parsed text should be possible to access differently ... (through model)
                 ctx.getParsedURL(),
                 ctx.getRootLoopedStepOrder()
@@ -121,7 +119,7 @@ public class SeleniumStepHelper extends StepHelperBase {
         // TODO associate web driver id with step order, here?
         //  if yes, then do so only for steps that do not load page? (... those will get their own driver doen the line ...)
 
-        return nextStepsHandler.execute(ScrapingStepInternalAccessor.of(step).getNextSteps(), currStepOrder, nextCtx, services);
+        return nextStepsHandler.execute(plan.getNextSteps(), currStepOrder, nextCtx, services);
     }
 
 }
@@ -25,4 +25,9 @@ public interface ScrapingRateLimiter {
 
     Duration getRequestFreq();
 
+    /**
+     * @return the earliest time at which the next request will be within limit
+     */
+    LocalDateTime getNextRequestAllowedTime();
+
 }
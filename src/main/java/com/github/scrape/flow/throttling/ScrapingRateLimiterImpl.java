@@ -64,4 +64,9 @@ public class ScrapingRateLimiterImpl implements ScrapingRateLimiter {
     public Duration getRequestFreq() {
         return requestFreq;
     }
+
+    @Override
+    public synchronized LocalDateTime getNextRequestAllowedTime() {
+        return nextRqAllowedTime;
+    }
 }
@@ -16,6 +16,7 @@
 
 package com.github.scrape;
 
+import com.github.scrape.flow.execution.LoadingBackpressure;
 import com.github.scrape.flow.execution.Task;
 import com.github.scrape.flow.execution.TaskError;
 import com.github.scrape.flow.execution.TaskExecutor;
@@ -45,6 +46,19 @@ public class TaskExecutorFakeConfig {
         public boolean awaitCompletion(Duration timeout) {
             return false;
         }
+
+        @Override
+        public void cancelAll() {
+        }
+
+        @Override
+        public boolean isQueueFull() {
+            return false;
+        }
+
+        @Override
+        public void setLoadingBackpressure(LoadingBackpressure loadingBackpressure) {
+        }
     }
 
 }
@@ -98,7 +98,7 @@ public class TestConfiguration {
 
     @Bean
     public ScrapedDataPublisher scrapedDataPublisher() {
-        return new ScrapedDataPublisher(stepAndDataRelationshipTracker());
+        return new ScrapedDataPublisher(stepAndDataRelationshipTracker(), options());
     }
 
     @Bean
@@ -123,13 +123,14 @@ public class TestConfiguration {
                 exclusiveExecutionTracker(),
                 scrapingRateLimiter(),
                 activeStepsTracker(),
-                clientReservationHandler()
+                clientReservationHandler(),
+                options()
         );
     }
 
     @Bean
     public TaskService taskService() {
-        return new TaskService(taskExecutor(), activeStepsTracker(), scrapedDataPublisher(), scrapingRateLimiter(), options());
+        return new TaskService(taskExecutor(), activeStepsTracker(), scrapedDataPublisher(), scrapingRateLimiter(), options(), stepOrderGenerator(), clientReservationHandler());
     }
 
     @Bean(destroyMethod = "close")
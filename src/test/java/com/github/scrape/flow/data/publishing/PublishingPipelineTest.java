@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.data.publishing;
+
+import com.github.scrape.flow.scraping.Options;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PublishingPipelineTest {
+
+    private static final int CAPACITY = 2;
+
+    @Test
+    public void queueDrainedWhilePublishingThreadMarksItFullDoesNotKeepLoadingPaused() {
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch lastReceived = new CountDownLatch(1);
+        AtomicReference<Thread> drainingThread = new AtomicReference<>();
+        AtomicBoolean interleave = new AtomicBoolean(false);
+        Options options = new Options() {
+            @Override
+            public int getPublishingQueueCapacity() {
+                // read right after the size of the queue - the publishing thread lets the drain empty the queue in between
+                if (interleave.compareAndSet(true, false)) {
+                    releaseFirst.countDown();
+                    awaitQuietly(lastReceived);
+                    awaitIdle(drainingThread.get());
+                }
+                return CAPACITY;
+            }
+        };
+        ScrapedDataListener<Object> listener = model -> {
+            drainingThread.set(Thread.currentThread());
+            if ("data1".equals(model)) {
+                firstReceived.countDown();
+                awaitQuietly(releaseFirst);
+            } else if ("data3".equals(model)) {
+                lastReceived.countDown();
+            }
+        };
+        PublishingPipeline pipeline = new PublishingPipeline(options);
+        AtomicInteger resumed = new AtomicInteger(0);
+        pipeline.addResumeListener(resumed::incrementAndGet);
+
+        pipeline.publish(listener, "data1");
+        awaitQuietly(firstReceived);
+        pipeline.publish(listener, "data2");
+        interleave.set(true);
+        pipeline.publish(listener, "data3"); // sees a full queue that gets drained before it marks it full
+
+        assertTrue(pipeline.awaitDelivered(Duration.ofSeconds(5)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.isLoadingPaused() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertFalse(pipeline.isLoadingPaused());
+        assertTrue(resumed.get() > 0);
+        pipeline.disposeScheduler();
+    }
+
+    @Test
+    public void batchDelayIncludesTheTimeTheFirstModelWaitedInTheQueue() throws InterruptedException {
+        CountDownLatch firstReceived = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondReceived = new CountDownLatch(1);
+        ScrapedDataBatchListener<Object> listener = new ScrapedDataBatchListener<>() {
+            @Override
+            public void onScrapedData(List<Object> batch) {
+                if (batch.contains("data1")) {
+                    firstReceived.countDown();
+                    awaitQuietly(releaseFirst);
+                } else {
+                    secondReceived.countDown();
+                }
+            }
+
+            @Override
+            public Duration getMaxBatchDelay() {
+                return Duration.ofMillis(500);
+            }
+        };
+        PublishingPipeline pipeline = new PublishingPipeline(new Options());
+
+        pipeline.publish(listener, "data1");
+        awaitQuietly(firstReceived);
+        pipeline.publish(listener, "data2");
+        Thread.sleep(600); // longer than the batch delay
+        releaseFirst.countDown();
+
+        assertTrue(secondReceived.await(250, TimeUnit.MILLISECONDS));
+        pipeline.disposeScheduler();
+    }
+
+    /**
+     * The thread of the publishing scheduler waits for the next drain once it is done with the current one
+     */
+    private void awaitIdle(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -20,12 +20,22 @@ import com.github.scrape.flow.execution.FinalizedModels;
 import com.github.scrape.flow.execution.SpawnedStepsModels;
 import com.github.scrape.flow.execution.StepAndDataRelationshipTracker;
 import com.github.scrape.flow.execution.StepOrder;
+import com.github.scrape.flow.scraping.Options;
+import com.github.scrape.flow.scraping.PublishingMode;
 import com.github.scrape.flow.scraping.SpawnedSteps;
 import org.junit.Test;
 import org.mockito.Mockito;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class ScrapedDataPublisherTest {
@@ -47,12 +57,13 @@ public class ScrapedDataPublisherTest {
         StepAndDataRelationshipTracker tracker = Mockito.mock(StepAndDataRelationshipTracker.class);
         Mockito.when(tracker.getModelsWithNoActiveSteps(this.step_1_1)).thenReturn(Collections.emptyList());
         Mockito.when(tracker.getModelsWithNoActiveSteps(this.step_1_2)).thenReturn(List.of(finalizedModels));
-        ScrapedDataPublisher publisher = new ScrapedDataPublisher(tracker);
+        ScrapedDataPublisher publisher = new ScrapedDataPublisher(tracker, new Options());
         publisher.enqueueStepsToAwaitDataPublishing(new SpawnedSteps(step_1, spawned));
 
         publisher.publishDataAfterStepFinished(this.step_1_1);
         Mockito.verifyNoInteractions(mockListener);
         publisher.publishDataAfterStepFinished(this.step_1_2);
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
         Mockito.verify(mockListener, Mockito.times(1)).onScrapedData(Mockito.eq(modelToPublish.getModel()));
 
     }
@@ -62,7 +73,7 @@ public class ScrapedDataPublisherTest {
 
         StepAndDataRelationshipTracker tracker = Mockito.mock(StepAndDataRelationshipTracker.class);
         Mockito.when(tracker.getModelsWithNoActiveSteps(this.step_1_1)).thenReturn(Collections.emptyList());
-        ScrapedDataPublisher publisher = new ScrapedDataPublisher(tracker);
+        ScrapedDataPublisher publisher = new ScrapedDataPublisher(tracker, new Options());
         publisher.enqueueStepsToAwaitDataPublishing(new SpawnedSteps(step_1, spawned));
 
         publisher.publishDataAfterStepFinished(this.step_1_1);
@@ -71,4 +82,218 @@ public class ScrapedDataPublisherTest {
 
     }
 
+    @Test
+    public void slowListenerDoesNotHoldUpPublishing() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ScrapedDataListener<Object> slowListener = data -> awaitQuietly(release);
+        ScrapedDataPublisher publisher = publisherFinalizingOnStep_1_2(new ModelToPublish("data", String.class, slowListener));
+
+        long start = System.currentTimeMillis();
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertFalse(publisher.awaitDelivered(Duration.ofMillis(50)));
+
+        release.countDown();
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void fullListenerQueuePausesLoadingInsteadOfBlockingPublishing() {
+        Options options = new Options();
+        options.setPublishingQueueCapacity(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ScrapedDataListener<Object> slowListener = data -> awaitQuietly(release);
+        ScrapedDataPublisher publisher = publisherFinalizingOnStep_1_2(options,
+                new ModelToPublish("data1", String.class, slowListener),
+                new ModelToPublish("data2", String.class, slowListener),
+                new ModelToPublish("data3", String.class, slowListener)
+        );
+        AtomicInteger resumed = new AtomicInteger(0);
+        publisher.getLoadingBackpressure().addResumeListener(resumed::incrementAndGet);
+
+        long start = System.currentTimeMillis();
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertTrue(publisher.getLoadingBackpressure().isLoadingPaused());
+
+        release.countDown();
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertFalse(publisher.getLoadingBackpressure().isLoadingPaused());
+        assertEquals(1, resumed.get());
+    }
+
+    @Test
+    public void batchListenerReceivesDataInBatches() {
+        List<List<Object>> batches = new CopyOnWriteArrayList<>();
+        ScrapedDataBatchListener<Object> batchListener = new ScrapedDataBatchListener<>() {
+            @Override
+            public void onScrapedData(List<Object> batch) {
+                batches.add(batch);
+            }
+
+            @Override
+            public Duration getMaxBatchDelay() {
+                return Duration.ofMillis(200);
+            }
+        };
+        ScrapedDataPublisher publisher = publisherFinalizingOnStep_1_2(
+                new ModelToPublish("data1", String.class, batchListener),
+                new ModelToPublish("data2", String.class, batchListener)
+        );
+
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of(List.of("data1", "data2")), batches);
+    }
+
+    @Test
+    public void strictOrderHoldsBackDataUntilPrecedingDataIsPublished() {
+        List<Object> published = new CopyOnWriteArrayList<>();
+        Options options = new Options();
+        ScrapedDataPublisher publisher = publisherFinalizingStepsSeparately(options, published::add);
+
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(Collections.emptyList(), published);
+        assertEquals(1, publisher.getReorderBufferOccupancy());
+
+        publisher.publishDataAfterStepFinished(this.step_1_1);
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of("data1", "data2"), published);
+        assertEquals(0, publisher.getReorderBufferOccupancy());
+    }
+
+    @Test
+    public void unorderedModePublishesDataAsSoonAsItIsFinalized() {
+        List<Object> published = new CopyOnWriteArrayList<>();
+        Options options = new Options();
+        options.setPublishingMode(PublishingMode.UNORDERED);
+        ScrapedDataPublisher publisher = publisherFinalizingStepsSeparately(options, published::add);
+
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of("data2"), published);
+
+        publisher.publishDataAfterStepFinished(this.step_1_1);
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of("data2", "data1"), published);
+        assertEquals(0, publisher.getReorderBufferOccupancy());
+    }
+
+    @Test
+    public void boundedReorderReleasesDataWhenBufferIsFull() {
+        List<Object> published = new CopyOnWriteArrayList<>();
+        Options options = new Options();
+        options.setPublishingMode(PublishingMode.BOUNDED_REORDER);
+        options.setMaxReorderBufferSize(0);
+        ScrapedDataPublisher publisher = publisherFinalizingStepsSeparately(options, published::add);
+
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of("data2"), published);
+        assertEquals(0, publisher.getReorderBufferOccupancy());
+
+        publisher.publishDataAfterStepFinished(this.step_1_1);
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of("data2", "data1"), published);
+    }
+
+    @Test
+    public void boundedReorderReleasesDataAfterMaxDelay() throws InterruptedException {
+        List<Object> published = new CopyOnWriteArrayList<>();
+        Options options = new Options();
+        options.setPublishingMode(PublishingMode.BOUNDED_REORDER);
+        options.setMaxReorderDelay(Duration.ofMillis(100));
+        ScrapedDataPublisher publisher = publisherFinalizingStepsSeparately(options, published::add);
+
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+        assertEquals(1, publisher.getReorderBufferOccupancy());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (publisher.getReorderBufferOccupancy() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(publisher.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of("data2"), published);
+    }
+
+    @Test
+    public void completingSubscribersCancelsPendingReleaseOfReorderedData() throws InterruptedException {
+        List<Object> published = new CopyOnWriteArrayList<>();
+        Options options = new Options();
+        options.setPublishingMode(PublishingMode.BOUNDED_REORDER);
+        options.setMaxReorderDelay(Duration.ofMillis(100));
+        ScrapedDataPublisher publisher = publisherFinalizingStepsSeparately(options, published::add);
+
+        publisher.publishDataAfterStepFinished(this.step_1_2);
+        publisher.completeSubscribers();
+        Thread.sleep(300);
+
+        assertEquals(1, publisher.getReorderBufferOccupancy());
+        assertEquals(List.of(), published);
+    }
+
+    @Test
+    public void subscriberNotRequestingDataPausesLoading() {
+        Options options = new Options();
+        options.setPublishingQueueCapacity(1);
+        StepAndDataRelationshipTracker tracker = Mockito.mock(StepAndDataRelationshipTracker.class);
+        SpawnedStepsModels spawnedStepsModels = new SpawnedStepsModels(step_1, spawned, List.of(new ModelToPublish("data", String.class, null)));
+        Mockito.when(tracker.getModelsWithNoActiveSteps(this.step_1_2)).thenReturn(List.of(new FinalizedModels(spawnedStepsModels)));
+        ScrapedDataPublisher publisher = new ScrapedDataPublisher(tracker, options);
+        AtomicInteger resumed = new AtomicInteger(0);
+        publisher.getLoadingBackpressure().addResumeListener(resumed::incrementAndGet);
+
+        StepVerifier.create(publisher.getScrapedData(String.class), 0)
+                .then(() -> {
+                    assertTrue(publisher.hasSubscribers(String.class));
+                    publisher.publishDataAfterStepFinished(this.step_1_2);
+                    assertTrue(publisher.getLoadingBackpressure().isLoadingPaused());
+                    assertFalse(publisher.awaitDelivered(Duration.ofMillis(50)));
+                })
+                .thenRequest(1)
+                .expectNext("data")
+                .then(() -> {
+                    assertFalse(publisher.getLoadingBackpressure().isLoadingPaused());
+                    assertEquals(1, resumed.get());
+                    publisher.completeSubscribers();
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    /**
+     * step_1_1 and step_1_2 each finalize their own data
+     */
+    private ScrapedDataPublisher publisherFinalizingStepsSeparately(Options options, ScrapedDataListener<Object> listener) {
+        StepAndDataRelationshipTracker tracker = Mockito.mock(StepAndDataRelationshipTracker.class);
+        SpawnedStepsModels models1 = new SpawnedStepsModels(step_1, List.of(step_1_1), List.of(new ModelToPublish("data1", String.class, listener)));
+        SpawnedStepsModels models2 = new SpawnedStepsModels(step_1, List.of(step_1_2), List.of(new ModelToPublish("data2", String.class, listener)));
+        Mockito.when(tracker.getModelsWithNoActiveSteps(this.step_1_1)).thenReturn(List.of(new FinalizedModels(models1)));
+        Mockito.when(tracker.getModelsWithNoActiveSteps(this.step_1_2)).thenReturn(List.of(new FinalizedModels(models2)));
+        ScrapedDataPublisher publisher = new ScrapedDataPublisher(tracker, options);
+        publisher.enqueueStepsToAwaitDataPublishing(new SpawnedSteps(step_1, spawned));
+        return publisher;
+    }
+
+    private ScrapedDataPublisher publisherFinalizingOnStep_1_2(ModelToPublish... modelsToPublish) {
+        return publisherFinalizingOnStep_1_2(new Options(), modelsToPublish);
+    }
+
+    private ScrapedDataPublisher publisherFinalizingOnStep_1_2(Options options, ModelToPublish... modelsToPublish) {
+        StepAndDataRelationshipTracker tracker = Mockito.mock(StepAndDataRelationshipTracker.class);
+        SpawnedStepsModels spawnedStepsModels = new SpawnedStepsModels(step_1, spawned, List.of(modelsToPublish));
+        Mockito.when(tracker.getModelsWithNoActiveSteps(this.step_1_2)).thenReturn(List.of(new FinalizedModels(spawnedStepsModels)));
+        return new ScrapedDataPublisher(tracker, options);
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
 }
@@ -16,11 +16,15 @@
 
 package com.github.scrape.flow.execution;
 
+import com.github.scrape.flow.scraping.ClientType;
 import org.junit.Before;
 import org.junit.Test;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ActiveStepsTrackerTest {
 
@@ -68,4 +72,29 @@ public class ActiveStepsTrackerTest {
     }
 
 
+    @Test
+    public void remainingLoadingDepthOfPrecedingStepsIsUpdatedOnTrackAndUntrack() {
+        StepHierarchyRepository repository = mock(StepHierarchyRepository.class);
+        when(repository.getRemainingLoadingPathDepth(eq(step_1), any())).thenReturn(3);
+        when(repository.getRemainingLoadingPathDepth(eq(step_1_1), any())).thenReturn(2);
+        when(repository.getRemainingLoadingPathDepth(eq(step_1_2), any())).thenReturn(1);
+        ast.setStepHierarchyRepository(repository);
+
+        ast.track(step_1_1, step_1_1, "");
+        ast.track(step_1_2, step_1_2, "");
+        assertEquals(0, ast.getRemainingLoadingDepthMaxOfPrecedingSteps(step_1_1, ClientType.HTMLUNIT));
+        assertEquals(2, ast.getRemainingLoadingDepthMaxOfPrecedingSteps(step_1_2, ClientType.HTMLUNIT));
+        assertEquals(2, ast.getRemainingLoadingDepthMaxOfPrecedingSteps(step_1_2_1, ClientType.SELENIUM));
+
+        ast.track(step_1, step_1, "");
+        assertEquals(3, ast.getRemainingLoadingDepthMaxOfPrecedingSteps(step_1_2_1, ClientType.HTMLUNIT));
+
+        ast.untrack(step_1);
+        ast.untrack(step_1_1);
+        assertEquals(1, ast.getRemainingLoadingDepthMaxOfPrecedingSteps(step_1_2_1, ClientType.HTMLUNIT));
+
+        ast.untrack(step_1_2);
+        assertEquals(0, ast.getRemainingLoadingDepthMaxOfPrecedingSteps(step_1_2_1, ClientType.HTMLUNIT));
+    }
+
 }
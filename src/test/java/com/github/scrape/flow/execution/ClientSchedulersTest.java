@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientId;
+import com.github.scrape.flow.scraping.ClientType;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import static org.junit.Assert.*;
+
+public class ClientSchedulersTest {
+
+    private final ClientSchedulers clientSchedulers = new ClientSchedulers();
+
+    @Test
+    public void sameClientIsAlwaysServedBySameThread() {
+        ClientId clientId = new ClientId(ClientType.HTMLUNIT, 1);
+
+        String thread1 = runOn(clientSchedulers.forClient(clientId));
+        String thread2 = runOn(clientSchedulers.forClient(new ClientId(ClientType.HTMLUNIT, 1)));
+
+        assertSame(clientSchedulers.forClient(clientId), clientSchedulers.forClient(clientId));
+        assertEquals(thread1, thread2);
+    }
+
+    @Test
+    public void differentClientsAreServedByDifferentThreads() {
+        String thread1 = runOn(clientSchedulers.forClient(new ClientId(ClientType.HTMLUNIT, 1)));
+        String thread2 = runOn(clientSchedulers.forClient(new ClientId(ClientType.HTMLUNIT, 2)));
+        String thread3 = runOn(clientSchedulers.forClient(new ClientId(ClientType.SELENIUM, 1)));
+
+        assertNotEquals(thread1, thread2);
+        assertNotEquals(thread1, thread3);
+        assertNotEquals(thread2, thread3);
+    }
+
+    private String runOn(Scheduler scheduler) {
+        return Mono.fromCallable(() -> Thread.currentThread().getName())
+                .subscribeOn(scheduler)
+                .block();
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientReservationType;
+import com.github.scrape.flow.scraping.ClientType;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SkipAheadTaskQueueTest {
+
+    private final SkipAheadTaskQueue queue = new SkipAheadTaskQueue();
+
+    @Test
+    public void candidatesArePolledInNaturalOrder() {
+        queue.add(queuedTask(StepOrder.from(0, 2)));
+        queue.add(queuedTask(StepOrder.from(0, 1)));
+
+        assertEquals(StepOrder.from(0, 1), queue.pollCandidate().getTask().getStepOrder());
+        assertEquals(StepOrder.from(0, 2), queue.pollCandidate().getTask().getStepOrder());
+        assertNull(queue.pollCandidate());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void parkedTasksAreReleasedOnlyWhenUnblocked() {
+        StepOrder parent = StepOrder.from(0, 1);
+        queue.park(queuedTask(StepOrder.from(0, 1, 1)), BlockingReason.PARENT_ACTIVE, parent);
+        queue.park(queuedTask(StepOrder.from(0, 1, 2)), BlockingReason.PARENT_ACTIVE, parent);
+
+        queue.recheck(BlockingReason.PARENT_ACTIVE, parent);
+        assertEquals(0, queue.releaseUnblocked((reason, blockedBy, head) -> false));
+        assertNull(queue.pollCandidate());
+        assertEquals(2, queue.size());
+
+        queue.recheck(BlockingReason.PARENT_ACTIVE, parent);
+        assertEquals(2, queue.releaseUnblocked((reason, blockedBy, head) -> true));
+        assertEquals(0, queue.blockedGroupCount());
+        assertEquals(StepOrder.from(0, 1, 1), queue.pollCandidate().getTask().getStepOrder());
+        assertEquals(StepOrder.from(0, 1, 2), queue.pollCandidate().getTask().getStepOrder());
+    }
+
+    @Test
+    public void onlyFirstTaskWaitingForClientIsReleasedAtATime() {
+        queue.park(queuedTask(StepOrder.from(0, 2)), BlockingReason.CLIENT_UNAVAILABLE, ClientType.HTMLUNIT);
+        queue.park(queuedTask(StepOrder.from(0, 1)), BlockingReason.CLIENT_UNAVAILABLE, ClientType.HTMLUNIT);
+
+        queue.recheckAll(BlockingReason.CLIENT_UNAVAILABLE);
+        assertEquals(1, queue.releaseUnblocked((reason, blockedBy, head) -> true));
+        assertEquals(StepOrder.from(0, 1), queue.pollCandidate().getTask().getStepOrder());
+        assertNull(queue.pollCandidate());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void groupsWaitingForAnEventAreExaminedOnlyWhenMarkedForRecheck() {
+        StepOrder parent1 = StepOrder.from(0, 1);
+        StepOrder parent2 = StepOrder.from(0, 2);
+        queue.park(queuedTask(StepOrder.from(0, 1, 1)), BlockingReason.PARENT_ACTIVE, parent1);
+        queue.park(queuedTask(StepOrder.from(0, 2, 1)), BlockingReason.PARENT_ACTIVE, parent2);
+        queue.park(queuedTask(StepOrder.from(0, 3)), BlockingReason.CONCURRENCY_LIMIT, null);
+        List<Object> examined = new ArrayList<>();
+        SkipAheadTaskQueue.UnblockedCheck check = (reason, blockedBy, head) -> {
+            examined.add(blockedBy);
+            return reason == BlockingReason.PARENT_ACTIVE;
+        };
+
+        assertEquals(0, queue.releaseUnblocked(check));
+        assertEquals(Collections.singletonList(null), examined);
+
+        examined.clear();
+        queue.recheck(BlockingReason.PARENT_ACTIVE, parent2);
+        assertEquals(1, queue.releaseUnblocked(check));
+        assertEquals(Arrays.asList(null, parent2), examined);
+        assertEquals(StepOrder.from(0, 2, 1), queue.pollCandidate().getTask().getStepOrder());
+
+        examined.clear();
+        assertEquals(0, queue.releaseUnblocked(check));
+        assertEquals(Collections.singletonList(null), examined);
+        assertEquals(2, queue.blockedGroupCount());
+    }
+
+    @Test
+    public void releaseFirstReleasesOnlyTheFirstTaskWithTheGivenReason() {
+        queue.park(queuedTask(StepOrder.from(0, 2)), BlockingReason.AWAITING_IDLE_LANE, null);
+        queue.park(queuedTask(StepOrder.from(0, 1)), BlockingReason.AWAITING_IDLE_LANE, null);
+
+        assertFalse(queue.releaseFirst(BlockingReason.QUEUE_FULL));
+        assertTrue(queue.releaseFirst(BlockingReason.AWAITING_IDLE_LANE));
+        assertEquals(StepOrder.from(0, 1), queue.pollCandidate().getTask().getStepOrder());
+        assertNull(queue.pollCandidate());
+        assertEquals(1, queue.blockedGroupCount());
+    }
+
+    @Test
+    public void queueIsReorderedWhenOrderingChanges() {
+        AtomicReference<Comparator<QueuedTask>> ordering = new AtomicReference<>(TaskOrderings.DEPTH_FIRST);
+        SkipAheadTaskQueue queue = new SkipAheadTaskQueue(ordering::get);
+        queue.add(queuedTask(StepOrder.from(0, 1, 1)));
+        queue.add(queuedTask(StepOrder.from(0, 2)));
+        queue.add(queuedTask(StepOrder.from(0, 1)));
+
+        assertEquals(StepOrder.from(0, 1), queue.pollCandidate().getTask().getStepOrder());
+
+        ordering.set(TaskOrderings.BREADTH_FIRST);
+
+        assertEquals(StepOrder.from(0, 2), queue.pollCandidate().getTask().getStepOrder());
+        assertEquals(StepOrder.from(0, 1, 1), queue.pollCandidate().getTask().getStepOrder());
+    }
+
+    private QueuedTask queuedTask(StepOrder stepOrder) {
+        Task task = new Task(new TaskProfile(stepOrder, false, "step", false, false,
+                ClientType.HTMLUNIT, ClientReservationType.READING, null, false, false), stepOrder, () -> {}, null, 0, Duration.ZERO);
+        return new QueuedTask(task, r -> {}, e -> {}, 0L);
+    }
+
+}
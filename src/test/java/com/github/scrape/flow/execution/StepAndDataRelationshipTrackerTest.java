@@ -132,5 +132,22 @@ public class StepAndDataRelationshipTrackerTest {
 
     }
 
+    @Test
+    public void descendantsTrackedLaterKeepModelsFromBeingFinalized() {
+
+        asTracker.track(step_1_2, null, "");
+        sdrTracker.track(step_1, List.of(step_1_1, step_1_2), List.of(new ModelToPublish(model1, model1.getClass(), listener)));
+
+        asTracker.track(step_1_2_1, null, "");
+        asTracker.untrack(step_1_2);
+        assertTrue(sdrTracker.getModelsWithNoActiveSteps(step_1_2).isEmpty());
+
+        asTracker.untrack(step_1_2_1);
+        List<FinalizedModels> data = sdrTracker.getModelsWithNoActiveSteps(step_1_2_1);
+        assertEquals(1, data.size());
+
+        sdrTracker.untrack(data.get(0).getModels());
+        assertTrue(sdrTracker.getAllRelatedStepsTo(step_1_2_1).isEmpty());
+    }
 
 }
@@ -20,7 +20,6 @@ import com.github.scrape.flow.scraping.ClientType;
 import com.github.scrape.flow.scraping.htmlunit.HtmlUnit;
 import com.github.scrape.flow.scraping.htmlunit.HtmlUnitScrapingStep;
 import com.github.scrape.flow.scraping.selenium.Selenium;
-import com.github.scrape.flow.scraping.selenium.SeleniumScrapingStep;
 import org.junit.Test;
 
 import java.util.List;
@@ -30,17 +29,13 @@ import static org.junit.Assert.assertNotNull;
 
 public class StepHierarchyRepositoryTest {
 
-    private final HtmlUnitScrapingStep<?> step_a_loading = HtmlUnit.Do.navigateToParsedLink();
-    private final HtmlUnitScrapingStep<?> step_b = HtmlUnit.Get.descendants();
-    private final SeleniumScrapingStep<?> step_c_loading = Selenium.Do.navigateToParsedLink();
-
     private final HtmlUnitScrapingStep<?> sequence =
-            step_a_loading // 0-1
-                    .nextBranch(step_b // 0-1-1
-                            .nextBranch(step_a_loading) // 0-1-1-1
-                            .nextBranch(step_b) // 0-1-1-2
+            HtmlUnit.Do.navigateToParsedLink() // 0-1
+                    .nextBranch(HtmlUnit.Get.descendants() // 0-1-1
+                            .nextBranch(HtmlUnit.Do.navigateToParsedLink()) // 0-1-1-1
+                            .nextBranch(HtmlUnit.Get.descendants()) // 0-1-1-2
                     )
-                    .nextBranch(step_c_loading); // 0-1-2
+                    .nextBranch(Selenium.Do.navigateToParsedLink()); // 0-1-2
 
     private final StepOrder step_0_1 = StepOrder.from(0, 1);
     private final StepOrder step_0_1_1_1 = StepOrder.from(0, 1, 1, 1);
@@ -18,6 +18,8 @@ package com.github.scrape.flow.execution;
 
 import org.junit.Test;
 
+import java.util.Set;
+
 import static org.junit.Assert.assertEquals;
 
 public class StepOrderGeneratorTest {
@@ -41,4 +43,24 @@ public class StepOrderGeneratorTest {
         StepOrder so4 = sog.genNextAfter(parent);
         assertEquals(StepOrder.from(1, 3), so4);
     }
+
+    @Test
+    public void countersOfFinishedSubtreesAreReleased() {
+        StepOrderGenerator sog = new StepOrderGenerator();
+        StepOrder parent = StepOrder.from(0, 1);
+
+        StepOrder child1 = sog.genNextAfter(parent);
+        StepOrder child2 = sog.genNextAfter(parent);
+        StepOrder grandChild = sog.genNextAfter(child1);
+        assertEquals(2, sog.size());
+
+        Set<StepOrder> active = Set.of(child2);
+        sog.releaseFinished(grandChild, so -> active.stream().anyMatch(a -> so.equals(a) || so.isParentOf(a)));
+        sog.releaseFinished(child1, so -> active.stream().anyMatch(a -> so.equals(a) || so.isParentOf(a)));
+        assertEquals(1, sog.size()); // parent's subtree is still active
+        assertEquals(StepOrder.from(0, 1, 3), sog.genNextAfter(parent));
+
+        sog.releaseFinished(child2, so -> false);
+        assertEquals(0, sog.size());
+    }
 }
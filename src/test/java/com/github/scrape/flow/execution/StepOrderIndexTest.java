@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StepOrderIndexTest {
+
+    private final StepOrderIndex<String> index = new StepOrderIndex<>();
+
+    @Test
+    public void putGetAndRemove() {
+        assertNull(index.put(StepOrder.from(0, 1, 2), "a"));
+        assertEquals("a", index.put(StepOrder.from(0, 1, 2), "b"));
+
+        assertEquals("b", index.get(StepOrder.from(0, 1, 2)));
+        assertNull(index.get(StepOrder.from(0, 1)));
+        assertNull(index.get(StepOrder.from(0, 1, 2, 1)));
+        assertEquals(1, index.size());
+
+        assertEquals("b", index.remove(StepOrder.from(0, 1, 2)));
+        assertNull(index.remove(StepOrder.from(0, 1, 2)));
+        assertTrue(index.isEmpty());
+    }
+
+    @Test
+    public void subtreeCountsAreMaintainedOnPutAndRemove() {
+        index.put(StepOrder.from(0, 1), "parent");
+        index.put(StepOrder.from(0, 1, 1), "child1");
+        index.put(StepOrder.from(0, 1, 2, 1), "grandchild");
+        index.put(StepOrder.from(0, 2), "other");
+
+        assertEquals(3, index.subtreeCount(StepOrder.from(0, 1)));
+        assertEquals(1, index.subtreeCount(StepOrder.from(0, 1, 2)));
+        assertTrue(index.containsSubtree(StepOrder.from(0, 1, 2)));
+        assertFalse(index.containsSubtree(StepOrder.from(0, 1, 3)));
+        assertEquals(4, index.subtreeCount(StepOrder.ROOT));
+
+        index.remove(StepOrder.from(0, 1));
+        assertEquals(2, index.subtreeCount(StepOrder.from(0, 1)));
+        assertTrue(index.containsSubtree(StepOrder.from(0, 1)));
+
+        index.remove(StepOrder.from(0, 1, 2, 1));
+        assertFalse(index.containsSubtree(StepOrder.from(0, 1, 2)));
+        assertEquals(1, index.subtreeCount(StepOrder.from(0, 1)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void subtreeValuesAreReturnedInNaturalOrder() {
+        index.put(StepOrder.from(0, 1, 10), "c");
+        index.put(StepOrder.from(0, 1, 2, 1), "b");
+        index.put(StepOrder.from(0, 1), "a");
+        index.put(StepOrder.from(0, 2), "d");
+        index.put(StepOrder.from(0, 11), "e");
+
+        assertEquals(List.of("a", "b", "c"), index.getSubtreeValues(StepOrder.from(0, 1)));
+        assertEquals(List.of("a", "b", "c", "d", "e"), index.getSubtreeValues(StepOrder.ROOT));
+        assertTrue(index.getSubtreeValues(StepOrder.from(0, 3)).isEmpty());
+    }
+
+    @Test
+    public void childrenStayOrderedWhenRemovedFromTheFrontWhileNewOnesAreAdded() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            index.put(StepOrder.from(0, i), "v" + i);
+            expected.add("v" + i);
+            if (i % 3 == 0) {
+                int removed = i / 3;
+                assertEquals("v" + removed, index.remove(StepOrder.from(0, removed)));
+                expected.remove("v" + removed);
+            }
+        }
+        assertEquals("v50", index.remove(StepOrder.from(0, 50)));
+        expected.remove("v50");
+        index.put(StepOrder.from(0, 50), "v50");
+        expected.add(expected.indexOf("v51"), "v50");
+
+        assertEquals(expected, index.getSubtreeValues(StepOrder.ROOT));
+        assertNull(index.get(StepOrder.from(0, 1)));
+        assertEquals("v100", index.get(StepOrder.from(0, 100)));
+    }
+
+    @Test
+    public void clearRemovesAllValues() {
+        index.put(StepOrder.from(0, 1), "a");
+        index.put(StepOrder.from(0, 1, 1), "b");
+
+        index.clear();
+
+        assertTrue(index.isEmpty());
+        assertFalse(index.containsSubtree(StepOrder.from(0, 1)));
+        assertNull(index.get(StepOrder.from(0, 1, 1)));
+    }
+
+}
@@ -158,4 +158,25 @@ public class StepOrderTest {
         assertTrue(StepOrder.from(1, 2, 2, 1).isAfter(StepOrder.from(1, 2, 2)));
         assertFalse(StepOrder.from(1, 2, 2).isAfter(StepOrder.from(1, 2, 2, 4)));
     }
+
+    @Test
+    public void derivedStepOrdersAreEqualToStepOrdersCreatedFromValues() {
+        StepOrder so = StepOrder.from(1, 2, 2, 4);
+
+        StepOrder parent = so.getParent().get();
+        assertEquals(StepOrder.from(1, 2, 2), parent);
+        assertEquals(StepOrder.from(1, 2, 2).hashCode(), parent.hashCode());
+        assertEquals("1-2-2-", parent.asString());
+        assertEquals(StepOrder.from(1, 2, 3), parent.getFollowingSibling());
+        assertEquals(StepOrder.from(1, 2, 2, 1), parent.getFirstChild());
+        assertEquals(StepOrder.from(1, 2, 2, 4), so); // deriving did not modify the shared values
+    }
+
+    @Test
+    public void stepOrderIsNotAffectedByModificationOfSourceValues() {
+        int[] values = {1, 2, 3};
+        StepOrder so = StepOrder.from(values);
+        values[2] = 5;
+        assertEquals(StepOrder.from(1, 2, 3), so);
+    }
 }
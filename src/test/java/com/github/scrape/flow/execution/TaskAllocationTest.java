@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientReservationType;
+import com.github.scrape.flow.scraping.ClientType;
+import com.github.scrape.flow.scraping.ScrapingServices;
+import com.github.scrape.flow.throttling.ScrapingRateLimiterImpl;
+import lombok.extern.log4j.Log4j2;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the bytes allocated per task with the allocation counter of the current thread. The submission is dispatched
+ * on the submitting thread so the counter covers the whole path from the task definition to the task waiting in the queue of the executor.
+ * <p>
+ * Bytes per submitted task logged by {@link #submittingTaskAllocatesPerTask()} on OpenJDK 17.0.9 with the default JIT, three runs each:
+ * <ul>
+ *     <li>before the per-step task properties were shared in {@link TaskProfile} (commit 30f395c): 2037 - 2119</li>
+ *     <li>after (commit 00536fe): 820 - 869</li>
+ * </ul>
+ * Reproduce with <code>mvn test -Dtest=TaskAllocationTest</code> on the respective commit - on 30f395c the task definition
+ * is created by <code>new TaskDefinition(StepOrder.from(1, 1), stepOrders[i], false, "step", runnable, true, true, ClientType.HTMLUNIT,
+ * ClientReservationType.LOADING, null, null, false, false)</code> instead. The figures include the growth of the executor's queue,
+ * amortized over the submitted tasks
+ */
+@Log4j2
+public class TaskAllocationTest {
+
+    private static final int WARM_UP = 50_000;
+    private static final int MEASURED = 100_000;
+    private static final int RESERVATION_CHECKS_PER_TASK = 3;
+
+    @Test
+    public void submittingTaskAllocatesPerTask() {
+        com.sun.management.ThreadMXBean threadMXBean = allocationCountingThreadMXBean();
+
+        measureSubmissionBytesPerTask(threadMXBean, WARM_UP);
+        long bytesPerTask = measureSubmissionBytesPerTask(threadMXBean, MEASURED);
+
+        log.info("Allocated {} bytes per submitted task", bytesPerTask);
+        assertTrue(bytesPerTask > 0);
+    }
+
+    /**
+     * The tasks are children of an active step so they stay queued. Their step orders are created up front the same way steps generate them before submitting
+     */
+    private long measureSubmissionBytesPerTask(com.sun.management.ThreadMXBean threadMXBean, int tasks) {
+        ScrapingServices services = new ScrapingServices(new ScrapingRateLimiterImpl(1, TimeUnit.SECONDS));
+        StepOrder parent = StepOrder.from(1);
+        services.getActiveStepsTracker().track(parent, parent, "parent");
+        TaskProfile profile = new TaskProfile(StepOrder.from(1, 1), false, "step", true, true, ClientType.HTMLUNIT,
+                ClientReservationType.LOADING, null, false, false);
+        StepOrder[] stepOrders = new StepOrder[tasks];
+        for (int i = 0; i < tasks; i++) {
+            stepOrders[i] = StepOrder.from(1, i + 1);
+        }
+        Runnable runnable = () -> {};
+        TaskService taskService = services.getTaskService();
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < tasks; i++) {
+            taskService.submitForExecution(new TaskDefinition(profile, stepOrders[i], runnable, null));
+        }
+        long bytesPerTask = (threadMXBean.getThreadAllocatedBytes(threadId) - before) / tasks;
+
+        TaskExecutorBase executor = (TaskExecutorBase) services.getTaskExecutor();
+        assertEquals(tasks, executor.queuedTaskCount());
+        executor.cancelAll();
+        return bytesPerTask;
+    }
+
+    @Test
+    public void checkingTaskReservationRepeatedlyAllocatesNothingMore() {
+        com.sun.management.ThreadMXBean threadMXBean = allocationCountingThreadMXBean();
+        TaskDefinition definition = new TaskDefinition(new TaskProfile(StepOrder.from(1, 1), false, "step", false, false, ClientType.HTMLUNIT,
+                ClientReservationType.READING, null, false, false), StepOrder.from(1, 1), () -> {}, null);
+
+        measureBytesPerTask(threadMXBean, definition, RESERVATION_CHECKS_PER_TASK, WARM_UP);
+        long checkedOnce = measureBytesPerTask(threadMXBean, definition, 1, MEASURED);
+        long checkedRepeatedly = measureBytesPerTask(threadMXBean, definition, RESERVATION_CHECKS_PER_TASK, MEASURED);
+
+        assertTrue("Allocated " + checkedRepeatedly + " bytes per task checked " + RESERVATION_CHECKS_PER_TASK + " times, "
+                + checkedOnce + " bytes per task checked once", checkedRepeatedly <= checkedOnce + 8);
+    }
+
+    private long measureBytesPerTask(com.sun.management.ThreadMXBean threadMXBean, TaskDefinition definition, int checksPerTask, int tasks) {
+        long threadId = Thread.currentThread().getId();
+        Object request = null;
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < tasks; i++) {
+            request = createAndCheck(definition, checksPerTask);
+        }
+        long bytesPerTask = (threadMXBean.getThreadAllocatedBytes(threadId) - before) / tasks;
+        assertNotNull(request);
+        return bytesPerTask;
+    }
+
+    private Object createAndCheck(TaskDefinition definition, int checksPerTask) {
+        Task task = Task.from(definition, 0, Duration.ZERO);
+        Object request = null;
+        for (int i = 0; i < checksPerTask; i++) {
+            request = task.getClientReservationRequest();
+        }
+        return request;
+    }
+
+    private com.sun.management.ThreadMXBean allocationCountingThreadMXBean() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationCounting = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationCounting.isThreadAllocatedMemorySupported());
+        allocationCounting.setThreadAllocatedMemoryEnabled(true);
+        return allocationCounting;
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientAccessManager;
+import com.github.scrape.flow.clients.ClientReservationType;
+import com.github.scrape.flow.scraping.ClientType;
+import com.github.scrape.flow.scraping.Options;
+import com.github.scrape.flow.throttling.ScrapingRateLimiter;
+import com.github.scrape.flow.throttling.ThrottlingService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskExecutorShardedByHostTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2021, 1, 1, 12, 0);
+
+    private final ScrapingRateLimiter blockedLimiter = mock(ScrapingRateLimiter.class);
+    private final ScrapingRateLimiter openLimiter = mock(ScrapingRateLimiter.class);
+
+    private TaskExecutorShardedByHost executor;
+
+    @Before
+    public void setUp() {
+        when(blockedLimiter.incrementIfRequestWithinLimitAndGet(any())).thenReturn(false);
+        when(blockedLimiter.getNextRequestAllowedTime()).thenReturn(now.plusHours(1));
+        when(openLimiter.incrementIfRequestWithinLimitAndGet(any())).thenReturn(true);
+        when(openLimiter.getNextRequestAllowedTime()).thenReturn(now);
+
+        Map<String, ScrapingRateLimiter> limitersByHost = Map.of("slow.com", blockedLimiter, "fast.com", openLimiter);
+        ClientAccessManager clientAccessManager = mock(ClientAccessManager.class);
+        when(clientAccessManager.canActivateReservation(any())).thenReturn(true);
+        ExclusiveExecutionHandler exclusiveExecutionHandler = mock(ExclusiveExecutionHandler.class);
+        when(exclusiveExecutionHandler.canExecute(any())).thenReturn(true);
+
+        String[] hostsInCreationOrder = {"slow.com", "fast.com"};
+        int[] created = {0};
+
+        executor = new TaskExecutorShardedByHost(
+                new ThrottlingService(),
+                () -> now,
+                exclusiveExecutionHandler,
+                openLimiter,
+                () -> limitersByHost.get(hostsInCreationOrder[created[0]++]),
+                ThrottlingService::new,
+                new ActiveStepsTracker(),
+                clientAccessManager,
+                new Options()
+        );
+    }
+
+    @Test
+    public void rateLimitedHostDoesNotBlockOtherHosts() throws InterruptedException {
+        AtomicBoolean slowExecuted = new AtomicBoolean(false);
+        CountDownLatch fastExecuted = new CountDownLatch(1);
+
+        executor.submit(task(StepOrder.from(0, 1), "slow.com", () -> slowExecuted.set(true)), r -> {}, e -> {});
+        executor.submit(task(StepOrder.from(0, 2), "fast.com", fastExecuted::countDown), r -> {}, e -> {});
+
+        assertTrue(fastExecuted.await(5, TimeUnit.SECONDS));
+        assertFalse(slowExecuted.get());
+        assertEquals(1, executor.queuedTaskCount());
+    }
+
+    @Test
+    public void lanesAreCreatedOnlyForHostsOfNetworkTasks() {
+        executor.submit(task(StepOrder.from(0, 1), "slow.com", () -> {}), r -> {}, e -> {});
+        executor.submit(task(StepOrder.from(0, 2), null, () -> {}), r -> {}, e -> {});
+
+        assertEquals(3, executor.laneCount()); // shared + cpu + slow.com
+    }
+
+    @Test
+    public void idleHostLanesAreDropped() throws InterruptedException {
+        CountDownLatch fastFinished = new CountDownLatch(1);
+
+        executor.submit(task(StepOrder.from(0, 1), "slow.com", () -> {}), r -> {}, e -> {});
+        executor.submit(task(StepOrder.from(0, 2), "fast.com", () -> {}), r -> fastFinished.countDown(), e -> {});
+        assertTrue(fastFinished.await(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (executor.laneCount() > 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            executor.dequeueNextAndExecute();
+        }
+        assertEquals(3, executor.laneCount()); // shared + cpu + slow.com which still has a queued task
+    }
+
+    private Task task(StepOrder stepOrder, String host, Runnable runnable) {
+        return new Task(new TaskProfile(stepOrder, false, "step", false, host != null,
+                ClientType.HTMLUNIT, ClientReservationType.READING, null, false, false), stepOrder, runnable, host, 0, Duration.ZERO);
+    }
+
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientAccessManager;
+import com.github.scrape.flow.clients.ClientId;
+import com.github.scrape.flow.clients.ClientReservationRequest;
+import com.github.scrape.flow.clients.ClientReservationType;
+import com.github.scrape.flow.scraping.ClientType;
+import com.github.scrape.flow.scraping.ExecutionMode;
+import com.github.scrape.flow.scraping.ExpansionMode;
+import com.github.scrape.flow.scraping.Options;
+import com.github.scrape.flow.throttling.ScrapingRateLimiter;
+import com.github.scrape.flow.throttling.ThrottlingService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TaskExecutorSingleQueueTest {
+
+    private final StepOrder blockedStep = StepOrder.from(0, 1);
+    private final AtomicBoolean clientAvailable = new AtomicBoolean(false);
+    private final ScrapingRateLimiter rateLimiter = mock(ScrapingRateLimiter.class);
+    private final Options options = new Options();
+    private final ActiveStepsTracker activeStepsTracker = new ActiveStepsTracker();
+    private final ClientAccessManager clientAccessManager = mock(ClientAccessManager.class);
+
+    private TaskExecutorSingleQueue executor;
+
+    @Before
+    public void setUp() {
+        when(rateLimiter.incrementIfRequestWithinLimitAndGet(any())).thenReturn(true);
+        when(clientAccessManager.canActivateReservation(any())).thenReturn(true);
+        when(clientAccessManager.canActivateReservation(argThat(rq -> isBlockedStep(rq)))).thenAnswer(inv -> clientAvailable.get());
+        ExclusiveExecutionHandler exclusiveExecutionHandler = mock(ExclusiveExecutionHandler.class);
+        when(exclusiveExecutionHandler.canExecute(any())).thenReturn(true);
+
+        executor = new TaskExecutorSingleQueue(
+                new ThrottlingService(),
+                LocalDateTime::now,
+                new ExecutingTasksTracker(),
+                exclusiveExecutionHandler,
+                activeStepsTracker,
+                rateLimiter,
+                clientAccessManager,
+                options
+        );
+    }
+
+    @Test
+    public void taskWaitingForClientDoesNotBlockFollowingTasks() throws InterruptedException {
+        CountDownLatch blockedExecuted = new CountDownLatch(1);
+        CountDownLatch followingExecuted = new CountDownLatch(1);
+
+        executor.submit(task(blockedStep, blockedExecuted::countDown), r -> {}, e -> {});
+        executor.submit(task(StepOrder.from(0, 2), followingExecuted::countDown), r -> {}, e -> {});
+
+        assertTrue(followingExecuted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, blockedExecuted.getCount());
+        assertEquals(1, executor.queuedTaskCount());
+
+        // the client gets released when the task holding it finishes
+        executor.submit(task(StepOrder.from(0, 3), () -> clientAvailable.set(true)), r -> {}, e -> {});
+
+        assertTrue(blockedExecuted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.queuedTaskCount());
+    }
+
+    @Test
+    public void cpuTaskDoesNotWaitForRateLimitedRequest() throws InterruptedException {
+        when(rateLimiter.incrementIfRequestWithinLimitAndGet(any())).thenReturn(false);
+        when(rateLimiter.getNextRequestAllowedTime()).thenReturn(LocalDateTime.now().plusHours(1));
+        AtomicBoolean requestExecuted = new AtomicBoolean(false);
+        CountDownLatch parsingExecuted = new CountDownLatch(1);
+
+        executor.submit(task(StepOrder.from(0, 2), true, () -> requestExecuted.set(true)), r -> {}, e -> {});
+        executor.submit(task(StepOrder.from(0, 3), false, parsingExecuted::countDown), r -> {}, e -> {});
+
+        assertTrue(parsingExecuted.await(5, TimeUnit.SECONDS));
+        assertFalse(requestExecuted.get());
+        assertEquals(1, executor.queuedTaskCount());
+    }
+
+    @Test
+    public void rateLimitedTaskIsExecutedAtItsDeadlineWithoutPolling() throws InterruptedException {
+        LocalDateTime deadline = LocalDateTime.now().plus(Duration.ofMillis(300));
+        when(rateLimiter.incrementIfRequestWithinLimitAndGet(any())).thenAnswer(inv -> !((LocalDateTime) inv.getArgument(0)).isBefore(deadline));
+        when(rateLimiter.getNextRequestAllowedTime()).thenReturn(deadline);
+        AtomicReference<LocalDateTime> executedAt = new AtomicReference<>();
+        CountDownLatch executed = new CountDownLatch(1);
+
+        executor.submit(task(StepOrder.from(0, 2), true, () -> {
+            executedAt.set(LocalDateTime.now());
+            executed.countDown();
+        }), r -> {}, e -> {});
+
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        assertFalse(executedAt.get().isBefore(deadline));
+        assertTrue(executedAt.get().isBefore(deadline.plus(Duration.ofMillis(500))));
+        // the first check before the deadline and the one triggered by the wake-up armed for the deadline
+        verify(rateLimiter, atMost(3)).incrementIfRequestWithinLimitAndGet(any());
+    }
+
+    @Test
+    public void finishedTaskDispatchesQueuedTaskRightAway() throws InterruptedException {
+        StepOrder parent = StepOrder.from(0, 5);
+        activeStepsTracker.track(parent, parent, "parent");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch childExecuted = new CountDownLatch(1);
+
+        // the result consumer untracks the finished step the way the TaskService does
+        executor.submit(task(parent, () -> awaitQuietly(release)), r -> activeStepsTracker.untrack(parent), e -> {});
+        executor.submit(task(StepOrder.from(0, 5, 1), childExecuted::countDown), r -> {}, e -> {});
+
+        assertFalse(childExecuted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, executor.queuedTaskCount());
+
+        long releasedAt = System.nanoTime();
+        release.countDown();
+
+        assertTrue(childExecuted.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - releasedAt < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void taskExceedingTimeoutIsInterruptedAndReportedAsError() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch errorReported = new CountDownLatch(1);
+        Task task = new Task(new TaskProfile(StepOrder.from(0, 2), false, "step", false, true,
+                ClientType.HTMLUNIT, ClientReservationType.LOADING, Duration.ofMillis(50), false, false), StepOrder.from(0, 2), blockUntilInterrupted(interrupted), null, 0, Duration.ZERO);
+
+        executor.submit(task, r -> {}, e -> errorReported.countDown());
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(errorReported.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void timedOutTaskIsRetriedOnlyOnceItsInterruptedExecutionStops() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch errorReported = new CountDownLatch(1);
+        Runnable ignoringInterruption = () -> {
+            runs.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleepIgnoringInterruption(Duration.ofMillis(300));
+            running.decrementAndGet();
+        };
+        Task task = new Task(new TaskProfile(StepOrder.from(0, 2), false, "step", false, false,
+                ClientType.HTMLUNIT, ClientReservationType.READING, Duration.ofMillis(50), false, false), StepOrder.from(0, 2), ignoringInterruption, null, 1, Duration.ofMillis(1));
+
+        executor.submit(task, r -> {}, e -> {
+            if (running.get() == 0) {
+                errorReported.countDown();
+            }
+        });
+
+        assertTrue(errorReported.await(5, TimeUnit.SECONDS));
+        assertEquals(2, runs.get());
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void clientOfTimedOutExecutionIgnoringInterruptionIsRestartedAndReleased() throws InterruptedException {
+        ClientId clientId = new ClientId(ClientType.HTMLUNIT, 1);
+        when(clientAccessManager.activateReservation(any())).thenReturn(Optional.of(clientId));
+        AtomicBoolean running = new AtomicBoolean();
+        CountDownLatch errorReported = new CountDownLatch(1);
+        StepOrder stepOrder = StepOrder.from(0, 2);
+        Runnable hanging = () -> {
+            running.set(true);
+            sleepIgnoringInterruption(Duration.ofSeconds(10));
+            running.set(false);
+        };
+        Task task = new Task(new TaskProfile(stepOrder, false, "step", false, false,
+                ClientType.HTMLUNIT, ClientReservationType.READING, Duration.ofMillis(100), false, false), stepOrder, hanging, null, 0, Duration.ZERO);
+
+        executor.submit(task, r -> {}, e -> errorReported.countDown());
+
+        assertTrue(errorReported.await(5, TimeUnit.SECONDS));
+        assertTrue(running.get());
+        verify(clientAccessManager).restartClient(clientId);
+        verify(clientAccessManager, timeout(1000)).finishReservation(stepOrder);
+    }
+
+    @Test
+    public void timedTasksOfOneClientNeverRunConcurrently() throws InterruptedException {
+        when(clientAccessManager.activateReservation(any())).thenReturn(Optional.of(new ClientId(ClientType.HTMLUNIT, 1)));
+        // neither the lane nor the pool of blocking tasks workers keep them apart, only the client does
+        options.setMaxConcurrentCpuTasks(2);
+        options.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(2);
+        Runnable readingDom = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleepIgnoringInterruption(Duration.ofMillis(200));
+            running.decrementAndGet();
+        };
+
+        executor.submit(timedReadingTask(StepOrder.from(0, 2), readingDom), r -> finished.countDown(), e -> {});
+        executor.submit(timedReadingTask(StepOrder.from(0, 3), readingDom), r -> finished.countDown(), e -> {});
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void cancelAllCancelsExecutingAndQueuedTasks() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch errorsReported = new CountDownLatch(3);
+        Runnable blocking = blockUntilInterrupted(interrupted);
+
+        executor.submit(task(StepOrder.from(0, 2), true, () -> {
+            started.countDown();
+            blocking.run();
+        }), r -> {}, e -> errorsReported.countDown());
+        executor.submit(task(blockedStep, () -> {}), r -> {}, e -> errorsReported.countDown());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.cancelAll();
+        executor.submit(task(StepOrder.from(0, 3), () -> {}), r -> {}, e -> errorsReported.countDown());
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(errorsReported.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.queuedTaskCount());
+    }
+
+    @Test
+    public void deferredExpansionIsHeldBackWhileQueueIsFull() throws InterruptedException {
+        options.setMaxQueuedTasks(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch deferredExecuted = new CountDownLatch(1);
+        Task deferred = new Task(new TaskProfile(StepOrder.from(0, 3), false, "step", false, false,
+                ClientType.HTMLUNIT, ClientReservationType.READING, null, true, false), StepOrder.from(0, 3), deferredExecuted::countDown, null, 0, Duration.ZERO);
+
+        executor.submit(task(StepOrder.from(0, 4), () -> awaitQuietly(release)), r -> {}, e -> {});
+        executor.submit(task(blockedStep, () -> {}), r -> {}, e -> {}); // stays queued -> the queue is full
+        executor.submit(deferred, r -> {}, e -> {});
+
+        assertFalse(deferredExecuted.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown(); // with nothing executing the deferred expansion needs to proceed despite the full queue
+        assertTrue(deferredExecuted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void lazyExpansionWaitsUntilNoOtherTaskCanBeExecuted() throws InterruptedException {
+        options.setExpansionMode(ExpansionMode.LAZY);
+        StepOrder parent = StepOrder.from(0, 5);
+        activeStepsTracker.track(parent, parent, "parent");
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch bothExecuted = new CountDownLatch(2);
+        Task cursor = new Task(new TaskProfile(StepOrder.from(0, 5, 1), false, "step", false, false,
+                ClientType.HTMLUNIT, ClientReservationType.READING, null, true, false), StepOrder.from(0, 5, 1), () -> executed.add("cursor"), null, 0, Duration.ZERO);
+
+        executor.submit(cursor, r -> bothExecuted.countDown(), e -> {});
+        executor.submit(task(StepOrder.from(0, 5, 2), () -> executed.add("child")), r -> bothExecuted.countDown(), e -> {});
+        activeStepsTracker.untrack(parent);
+        executor.dequeueNextAndExecute();
+
+        assertTrue(bothExecuted.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("child", "cursor"), executed);
+    }
+
+    @Test
+    public void tasksSubmittedConcurrentlyAreAllExecuted() throws InterruptedException {
+        int threads = 8;
+        int tasksPerThread = 200;
+        CountDownLatch executed = new CountDownLatch(threads * tasksPerThread);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int threadNo = t + 1;
+            Thread submitter = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 1; i <= tasksPerThread; i++) {
+                    executor.submit(task(StepOrder.from(0, threadNo, i), executed::countDown), r -> {}, e -> {});
+                }
+            });
+            submitter.start();
+            submitters.add(submitter);
+        }
+
+        start.countDown();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        assertTrue(executed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.queuedTaskCount());
+    }
+
+    @Test
+    public void loadingTasksWaitWhileBackpressurePausesLoading() throws InterruptedException {
+        AtomicBoolean paused = new AtomicBoolean(true);
+        List<Runnable> resumeListeners = new CopyOnWriteArrayList<>();
+        executor.setLoadingBackpressure(new LoadingBackpressure() {
+            @Override
+            public boolean isLoadingPaused() {
+                return paused.get();
+            }
+
+            @Override
+            public void addResumeListener(Runnable listener) {
+                resumeListeners.add(listener);
+            }
+        });
+        CountDownLatch loadingExecuted = new CountDownLatch(1);
+        CountDownLatch readingExecuted = new CountDownLatch(1);
+        Task reading = new Task(new TaskProfile(StepOrder.from(0, 3), false, "step", false, false,
+                ClientType.HTMLUNIT, ClientReservationType.READING, null, false, false), StepOrder.from(0, 3), readingExecuted::countDown, null, 0, Duration.ZERO);
+
+        executor.submit(task(StepOrder.from(0, 2), loadingExecuted::countDown), r -> {}, e -> {});
+        executor.submit(reading, r -> {}, e -> {});
+
+        assertTrue(readingExecuted.await(5, TimeUnit.SECONDS));
+        assertFalse(loadingExecuted.await(200, TimeUnit.MILLISECONDS));
+
+        paused.set(false);
+        resumeListeners.forEach(Runnable::run);
+        assertTrue(loadingExecuted.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sleepIgnoringInterruption(Duration duration) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                // keeps running like a client call that does not respond to interruption
+            }
+        }
+    }
+
+    private Runnable blockUntilInterrupted(CountDownLatch interrupted) {
+        return () -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        };
+    }
+
+    private boolean isBlockedStep(ClientReservationRequest rq) {
+        return rq != null && blockedStep.equals(rq.getStep());
+    }
+
+    private Task timedReadingTask(StepOrder stepOrder, Runnable runnable) {
+        return new Task(new TaskProfile(stepOrder, false, "step", false, false,
+                ClientType.HTMLUNIT, ClientReservationType.READING, Duration.ofSeconds(5), false, false), stepOrder, runnable, null, 0, Duration.ZERO);
+    }
+
+    private Task task(StepOrder stepOrder, Runnable runnable) {
+        return task(stepOrder, false, runnable);
+    }
+
+    private Task task(StepOrder stepOrder, boolean makingHttpRequests, Runnable runnable) {
+        return new Task(new TaskProfile(stepOrder, false, "step", false, makingHttpRequests,
+                ClientType.HTMLUNIT, ClientReservationType.LOADING, null, false, false), stepOrder, runnable, null, 0, Duration.ZERO);
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.execution;
+
+import com.github.scrape.flow.clients.ClientAccessManager;
+import com.github.scrape.flow.clients.ClientReservationType;
+import com.github.scrape.flow.data.publishing.ScrapedDataPublisher;
+import com.github.scrape.flow.scraping.ClientType;
+import com.github.scrape.flow.scraping.Options;
+import com.github.scrape.flow.throttling.ScrapingRateLimiter;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TaskServiceTest {
+
+    private final TaskExecutor taskExecutor = mock(TaskExecutor.class);
+    private final ActiveStepsTracker activeStepsTracker = mock(ActiveStepsTracker.class);
+    private final ScrapedDataPublisher scrapedDataPublisher = mock(ScrapedDataPublisher.class);
+    private final ClientAccessManager clientAccessManager = mock(ClientAccessManager.class);
+    private final ScrapingRateLimiter rateLimiter = mock(ScrapingRateLimiter.class);
+    private final TaskService taskService = new TaskService(taskExecutor, activeStepsTracker, scrapedDataPublisher, rateLimiter, new Options(), new StepOrderGenerator(), clientAccessManager);
+
+    private final StepOrder parent = StepOrder.from(1);
+    private final StepOrder child = StepOrder.from(1, 1);
+    private final StepOrder grandChild = StepOrder.from(1, 1, 1);
+
+    @Test
+    public void fusableStepsAreExecutedInlineAfterTheTaskThatSubmittedThem() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+        List<StepOrder> executed = new ArrayList<>();
+        TaskDefinition grandChildDef = definition(grandChild, () -> executed.add(grandChild), true);
+        TaskDefinition childDef = definition(child, () -> {
+            executed.add(child);
+            taskService.submitForExecution(grandChildDef);
+        }, true);
+        TaskDefinition parentDef = definition(parent, () -> {
+            executed.add(parent);
+            taskService.submitForExecution(childDef);
+        }, false);
+
+        taskService.submitForExecution(parentDef);
+        ArgumentCaptor<Task> submitted = ArgumentCaptor.forClass(Task.class);
+        verify(taskExecutor).submit(submitted.capture(), any(), any());
+        submitted.getValue().getStepRunnable().run();
+
+        assertEquals(List.of(parent, child, grandChild), executed);
+        verify(taskExecutor, times(1)).submit(any(), any(), any());
+        InOrder inOrder = inOrder(clientAccessManager, activeStepsTracker);
+        inOrder.verify(clientAccessManager).finishReservation(child);
+        inOrder.verify(clientAccessManager).finishReservation(grandChild);
+        inOrder.verify(activeStepsTracker).untrack(child);
+        inOrder.verify(activeStepsTracker).untrack(grandChild);
+    }
+
+    @Test
+    public void fusableStepSubmittedOutsideOfTaskIsQueued() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+
+        taskService.submitForExecution(definition(child, () -> {}, true));
+
+        verify(taskExecutor).submit(any(), any(), any());
+        verify(clientAccessManager, never()).makeReservationPlaceholder(any());
+    }
+
+    @Test
+    public void fusedStepsAreReleasedWhenTheTaskFails() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+        TaskDefinition childDef = definition(child, () -> {}, true);
+        TaskDefinition parentDef = definition(parent, () -> {
+            taskService.submitForExecution(childDef);
+            throw new IllegalStateException("failed");
+        }, false);
+
+        taskService.submitForExecution(parentDef);
+        ArgumentCaptor<Task> submitted = ArgumentCaptor.forClass(Task.class);
+        verify(taskExecutor).submit(submitted.capture(), any(), any());
+        try {
+            submitted.getValue().getStepRunnable().run();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        verify(clientAccessManager, never()).activateReservation(any());
+        verify(clientAccessManager).finishReservation(child);
+        verify(activeStepsTracker).untrack(child);
+    }
+
+    @Test
+    public void fusableStepIsNotFusedIntoTaskMakingHttpRequests() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+        List<StepOrder> executed = new ArrayList<>();
+        TaskDefinition childDef = definition(child, () -> executed.add(child), true);
+        TaskDefinition parentDef = new TaskDefinition(new TaskProfile(parent, false, "step-" + parent, false, true, ClientType.HTMLUNIT,
+                ClientReservationType.LOADING, null, false, false), parent, () -> taskService.submitForExecution(childDef), null);
+
+        taskService.submitForExecution(parentDef);
+        ArgumentCaptor<Task> submitted = ArgumentCaptor.forClass(Task.class);
+        verify(taskExecutor).submit(submitted.capture(), any(), any());
+        submitted.getValue().getStepRunnable().run();
+
+        assertEquals(List.of(), executed);
+        verify(taskExecutor, times(2)).submit(submitted.capture(), any(), any());
+        assertEquals(child, submitted.getValue().getStepOrder());
+    }
+
+    @Test
+    public void failedFusedStepIsRetriedAsTaskOfItsOwn() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+        TaskDefinition childDef = definition(child, () -> {
+            throw new IllegalStateException("failed");
+        }, true);
+        TaskDefinition parentDef = definition(parent, () -> taskService.submitForExecution(childDef), false);
+
+        taskService.submitForExecution(parentDef);
+        ArgumentCaptor<Task> submitted = ArgumentCaptor.forClass(Task.class);
+        verify(taskExecutor).submit(submitted.capture(), any(), any());
+        submitted.getValue().getStepRunnable().run();
+
+        verify(taskExecutor, times(2)).submit(submitted.capture(), any(), any());
+        Task retry = submitted.getValue();
+        assertEquals(child, retry.getStepOrder());
+        assertEquals(new Options().getMaxRequestRetries() - 1, retry.getMaxRetries());
+        verify(clientAccessManager).finishReservation(child);
+        verify(activeStepsTracker, never()).untrack(child);
+    }
+
+    @Test
+    public void siblingExecutionsOfTheSameStepAreSubmittedAsOneTask() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+        when(clientAccessManager.canActivateReservation(any())).thenReturn(true);
+        StepOrder hierarchyOrder = StepOrder.from(1, 1);
+        List<StepOrder> siblings = List.of(StepOrder.from(1, 1), StepOrder.from(1, 2), StepOrder.from(1, 3));
+        List<StepOrder> executed = new ArrayList<>();
+        TaskDefinition parentDef = definition(parent, () -> siblings.forEach(sibling ->
+                taskService.submitForExecution(definition(sibling, hierarchyOrder, () -> executed.add(sibling), ClientReservationType.READING))
+        ), false);
+
+        taskService.submitForExecution(parentDef);
+        ArgumentCaptor<Task> submitted = ArgumentCaptor.forClass(Task.class);
+        verify(taskExecutor).submit(submitted.capture(), any(), any());
+        submitted.getValue().getStepRunnable().run();
+        verify(taskExecutor, times(2)).submit(submitted.capture(), any(), any());
+        Task batch = submitted.getValue();
+        batch.getStepRunnable().run();
+
+        assertEquals(siblings.get(0), batch.getStepOrder());
+        assertEquals(siblings, executed);
+        siblings.forEach(sibling -> verify(activeStepsTracker).track(eq(sibling), any(), any()));
+        verify(clientAccessManager, never()).makeReservationPlaceholder(argThat(rq -> rq.getStep().equals(siblings.get(0))));
+        verify(clientAccessManager).finishReservation(siblings.get(2));
+        verify(activeStepsTracker).untrack(siblings.get(1));
+        verify(activeStepsTracker).untrack(siblings.get(2));
+    }
+
+    @Test
+    public void modifyingStepSubmittedInBetweenEndsTheBatch() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+        StepOrder readingHierarchyOrder = StepOrder.from(1, 1);
+        StepOrder modifyingHierarchyOrder = StepOrder.from(1, 2);
+        TaskDefinition parentDef = definition(parent, () -> {
+            taskService.submitForExecution(definition(StepOrder.from(1, 1), readingHierarchyOrder, () -> {}, ClientReservationType.READING));
+            taskService.submitForExecution(definition(StepOrder.from(1, 2), modifyingHierarchyOrder, () -> {}, ClientReservationType.MODIFYING));
+            taskService.submitForExecution(definition(StepOrder.from(1, 3), readingHierarchyOrder, () -> {}, ClientReservationType.READING));
+        }, false);
+
+        taskService.submitForExecution(parentDef);
+        ArgumentCaptor<Task> submitted = ArgumentCaptor.forClass(Task.class);
+        verify(taskExecutor).submit(submitted.capture(), any(), any());
+        submitted.getValue().getStepRunnable().run();
+
+        verify(taskExecutor, times(4)).submit(submitted.capture(), any(), any());
+        List<Task> tasks = submitted.getAllValues();
+        assertEquals(List.of(StepOrder.from(1, 1), StepOrder.from(1, 2), StepOrder.from(1, 3)),
+                List.of(tasks.get(2).getStepOrder(), tasks.get(3).getStepOrder(), tasks.get(4).getStepOrder()));
+    }
+
+    @Test
+    public void modifyingStepSubmittedByBatchedExecutionSendsTheFollowingOnesToTheExecutor() {
+        when(rateLimiter.getRequestFreq()).thenReturn(Duration.ofMillis(100));
+        when(clientAccessManager.canActivateReservation(any())).thenReturn(true);
+        StepOrder hierarchyOrder = StepOrder.from(1, 1);
+        StepOrder modifyingHierarchyOrder = StepOrder.from(1, 1, 1);
+        List<StepOrder> siblings = List.of(StepOrder.from(1, 1), StepOrder.from(1, 2), StepOrder.from(1, 3));
+        StepOrder modifyingChild = StepOrder.from(1, 1, 1);
+        List<StepOrder> executed = new ArrayList<>();
+        TaskDefinition parentDef = definition(parent, () -> siblings.forEach(sibling ->
+                taskService.submitForExecution(definition(sibling, hierarchyOrder, () -> {
+                    executed.add(sibling);
+                    if (sibling.equals(siblings.get(0))) {
+                        taskService.submitForExecution(definition(modifyingChild, modifyingHierarchyOrder, () -> {}, ClientReservationType.MODIFYING));
+                    }
+                }, ClientReservationType.READING))
+        ), false);
+
+        taskService.submitForExecution(parentDef);
+        ArgumentCaptor<Task> submitted = ArgumentCaptor.forClass(Task.class);
+        verify(taskExecutor).submit(submitted.capture(), any(), any());
+        submitted.getValue().getStepRunnable().run();
+        verify(taskExecutor, times(2)).submit(submitted.capture(), any(), any());
+        submitted.getValue().getStepRunnable().run();
+
+        assertEquals(List.of(siblings.get(0)), executed);
+        verify(taskExecutor, times(5)).submit(submitted.capture(), any(), any());
+        List<Task> tasks = submitted.getAllValues();
+        assertEquals(List.of(modifyingChild, siblings.get(1), siblings.get(2)),
+                List.of(tasks.get(tasks.size() - 3).getStepOrder(), tasks.get(tasks.size() - 2).getStepOrder(), tasks.get(tasks.size() - 1).getStepOrder()));
+        verify(clientAccessManager, never()).activateReservation(any());
+        verify(activeStepsTracker, never()).untrack(siblings.get(1));
+    }
+
+    private TaskDefinition definition(StepOrder stepOrder, Runnable runnable, boolean fusable) {
+        return new TaskDefinition(new TaskProfile(stepOrder, false, "step-" + stepOrder, false, false, ClientType.HTMLUNIT,
+                ClientReservationType.READING, null, false, fusable), stepOrder, runnable, null);
+    }
+
+    private TaskDefinition definition(StepOrder stepOrder, StepOrder hierarchyOrder, Runnable runnable, ClientReservationType reservationType) {
+        return new TaskDefinition(new TaskProfile(hierarchyOrder, false, "step-" + hierarchyOrder, false, false, ClientType.HTMLUNIT,
+                reservationType, null, false, false), stepOrder, runnable, null);
+    }
+
+}
@@ -21,20 +21,18 @@ import org.junit.Test;
 
 import java.util.Optional;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class ContextModelsTest {
 
     @Test
     public void getModelFor() {
 
-        ContextModels models = new ContextModels();
-
         String strModel = "test";
-        models.add(strModel, String.class);
         Object objModel = new Object();
-        models.add(objModel, Object.class);
+        ContextModels models = new ContextModels()
+                .with(strModel, String.class)
+                .with(objModel, Object.class);
 
         Optional<ModelWrapper> modelWrapper = models.getModelFor(String.class);
 
@@ -42,4 +40,25 @@ public class ContextModelsTest {
         assertEquals(strModel, modelWrapper.get().getModel());
 
     }
+
+    @Test
+    public void addingModelDoesNotChangeTheOriginalModels() {
+
+        ContextModels parent = new ContextModels().with("parent", String.class);
+        ContextModels child = parent.with(1, Integer.class);
+
+        assertFalse(parent.getModelFor(Integer.class).isPresent());
+        assertEquals(1, child.getModelFor(Integer.class).get().getModel());
+        assertEquals("parent", child.getModelFor(String.class).get().getModel());
+    }
+
+    @Test
+    public void firstModelOfClassStaysVisible() {
+
+        ContextModels parent = new ContextModels().with("parent", String.class);
+        ContextModels child = parent.with("child", String.class);
+
+        assertSame(parent, child);
+        assertEquals("parent", child.getModelFor(String.class).get().getModel());
+    }
 }
@@ -34,7 +34,7 @@ public class ExecuteStepByModelDataConditionTest {
 
         assertFalse(condition.canExecute(step.getName(), contextModels));
 
-        contextModels.add(modelData, String.class);
+        contextModels = contextModels.with(modelData, String.class);
 
         assertTrue(condition.canExecute(step.getName(), contextModels));
 
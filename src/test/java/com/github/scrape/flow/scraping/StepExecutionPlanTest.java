@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 Janis Tzoumas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.scrape.flow.scraping;
+
+import com.github.scrape.flow.execution.StepHierarchyRepository;
+import com.github.scrape.flow.scraping.htmlunit.HtmlUnit;
+import com.github.scrape.flow.scraping.htmlunit.HtmlUnitGetDescendants;
+import com.github.scrape.flow.scraping.htmlunit.HtmlUnitNavigateToUrl;
+import com.github.scrape.flow.scraping.htmlunit.HtmlUnitParseTextContent;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class StepExecutionPlanTest {
+
+    private final HtmlUnitParseTextContent parsing = HtmlUnit.Parse.textContent()
+            .collectValue(StringBuilder::append, StringBuilder.class);
+    private final HtmlUnitGetDescendants sequence = HtmlUnit.Get.descendants()
+            .addCollector(StringBuilder::new, StringBuilder.class)
+            .nextBranch(parsing);
+
+    @Test
+    public void plansAreCompiledForAllStepsOfTheSequence() {
+        StepHierarchyRepository repo = StepHierarchyRepository.createFrom(sequence);
+
+        StepExecutionPlan.compileAll(repo);
+
+        StepExecutionPlan plan = parsing.getExecutionPlan();
+        assertSame(plan, parsing.getExecutionPlan());
+        assertSame(repo.getMetadataFor(parsing), plan.getStepMetadata(repo, parsing));
+        assertEquals(1, sequence.getExecutionPlan().getNextSteps().size());
+    }
+
+    @Test
+    public void taskProfileIsSharedByAllTasksOfTheStep() {
+        StepHierarchyRepository repo = StepHierarchyRepository.createFrom(sequence);
+        StepExecutionPlan.compileAll(repo);
+
+        StepExecutionPlan plan = parsing.getExecutionPlan();
+
+        assertSame(plan.getTaskProfile(repo, parsing), plan.getTaskProfile(repo, parsing));
+        assertEquals(repo.getMetadataFor(parsing).getStepHierarchyOrder(), plan.getTaskProfile(repo, parsing).getStepHierarchyOrder());
+        assertTrue(plan.getDeferredExpansionTaskProfile(repo, parsing).isDeferredExpansion());
+    }
+
+    @Test
+    public void accumulatorsAreLookedUpByParsedValueType() {
+        StepExecutionPlan plan = parsing.getExecutionPlan();
+
+        assertEquals(1, plan.getAccumulatorsFor(String.class).size());
+        assertTrue(plan.getAccumulatorsFor(Integer.class).isEmpty());
+    }
+
+    @Test
+    public void modifyingStepDiscardsItsPlan() {
+        StepExecutionPlan plan = sequence.getExecutionPlan();
+
+        sequence.addCollector(Object::new, Object.class);
+
+        assertNotSame(plan, sequence.getExecutionPlan());
+    }
+
+    @Test
+    public void changingSettingsUsedByThePlanDiscardsIt() {
+        StepExecutionPlan plan = parsing.getExecutionPlan();
+        parsing.stepName("parsing");
+        assertNotSame(plan, parsing.getExecutionPlan());
+        assertEquals("parsing-step", parsing.getExecutionPlan().getStepName());
+
+        plan = parsing.getExecutionPlan();
+        parsing.executionTimeout(Duration.ofSeconds(1));
+        assertNotSame(plan, parsing.getExecutionPlan());
+
+        plan = parsing.getExecutionPlan();
+        parsing.setExclusiveExecution(true);
+        assertNotSame(plan, parsing.getExecutionPlan());
+    }
+
+    @Test
+    public void readingStepsOfPageThatIsNotModifiedAreFusable() {
+        HtmlUnitParseTextContent parseText = HtmlUnit.Parse.textContent();
+        HtmlUnitGetDescendants getDescendants = HtmlUnit.Get.descendants().nextBranch(parseText);
+        HtmlUnitNavigateToUrl navigate = HtmlUnit.Do.navigateTo("https://example.com").nextBranch(getDescendants);
+
+        StepExecutionPlan.compileAll(StepHierarchyRepository.createFrom(navigate));
+
+        assertFalse(navigate.getExecutionPlan().isFusable());
+        assertTrue(getDescendants.getExecutionPlan().isFusable());
+        assertTrue(parseText.getExecutionPlan().isFusable());
+    }
+
+    @Test
+    public void readingStepsOfPageThatGetsModifiedAreNotFusable() {
+        HtmlUnitParseTextContent parseText = HtmlUnit.Parse.textContent();
+        HtmlUnitParseTextContent parseTextOnOtherPage = HtmlUnit.Parse.textContent();
+        HtmlUnitGetDescendants getDescendants = HtmlUnit.Get.descendants()
+                .nextBranch(parseText)
+                .nextBranch(HtmlUnit.Do.navigateToParsedLink().nextBranch(parseTextOnOtherPage));
+        HtmlUnitNavigateToUrl navigate = HtmlUnit.Do.navigateTo("https://example.com")
+                .nextBranch(getDescendants)
+                .nextBranch(HtmlUnit.Flow.withPagination());
+
+        StepExecutionPlan.compileAll(StepHierarchyRepository.createFrom(navigate));
+
+        assertFalse(getDescendants.getExecutionPlan().isFusable());
+        assertFalse(parseText.getExecutionPlan().isFusable());
+        assertTrue(parseTextOnOtherPage.getExecutionPlan().isFusable());
+    }
+
+    @Test
+    public void stepWithExecutionTimeoutIsNotFusable() {
+        HtmlUnitParseTextContent parseText = HtmlUnit.Parse.textContent().executionTimeout(Duration.ofSeconds(1));
+        HtmlUnitNavigateToUrl navigate = HtmlUnit.Do.navigateTo("https://example.com").nextBranch(parseText);
+
+        StepExecutionPlan.compileAll(StepHierarchyRepository.createFrom(navigate));
+
+        assertFalse(parseText.getExecutionPlan().isFusable());
+    }
+
+}
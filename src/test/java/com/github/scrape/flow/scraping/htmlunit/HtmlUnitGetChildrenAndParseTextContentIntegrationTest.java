@@ -26,6 +26,7 @@ import com.github.scrape.flow.data.publishing.ScrapedDataListener;
 import com.github.scrape.flow.execution.StepHierarchyRepository;
 import com.github.scrape.flow.execution.StepOrder;
 import com.github.scrape.flow.execution.TaskExecutor;
+import com.github.scrape.flow.scraping.ExpansionMode;
 import com.github.scrape.flow.scraping.ScrapingContext;
 import com.github.scrape.flow.scraping.ScrapingServices;
 import lombok.Data;
@@ -65,7 +66,24 @@ public class HtmlUnitGetChildrenAndParseTextContentIntegrationTest {
     @Test
     @DirtiesContext
     public void childNodesAreFoundAndTextContentIsParsedAndCollectedToModels() throws IOException, URISyntaxException {
+        scrapeAndVerifyParsedValues();
+    }
+
+    @Test
+    @DirtiesContext
+    public void childNodesExpandedLazilyAreParsedAndPublishedInOrder() throws IOException, URISyntaxException {
+        scrapingServices.getOptions().setExpansionMode(ExpansionMode.LAZY);
+        scrapeAndVerifyParsedValues();
+    }
+
+    @Test
+    @DirtiesContext
+    public void childNodesWithDeferredExpansionDueToFullQueueAreParsedAndPublishedInOrder() throws IOException, URISyntaxException {
+        scrapingServices.getOptions().setMaxQueuedTasks(1);
+        scrapeAndVerifyParsedValues();
+    }
 
+    private void scrapeAndVerifyParsedValues() throws IOException, URISyntaxException {
         HtmlPage page = TestUtils.loadTestPage("test_page_1.html", webClient);
         DomNode parent = (DomNode) page.getByXPath("/html/body/div/div").stream().findFirst().get();
         ScrapingContext ctx = new ScrapingContext(StepOrder.ROOT, parent);
@@ -80,6 +98,7 @@ public class HtmlUnitGetChildrenAndParseTextContentIntegrationTest {
 
         testSequence.execute(ctx, scrapingServices);
         taskExecutor.awaitCompletion(Duration.ofSeconds(1));
+        scrapingServices.getScrapedDataPublisher().awaitDelivered(Duration.ofSeconds(1));
 
         ArgumentCaptor<ScrapedValue> argument = ArgumentCaptor.forClass(ScrapedValue.class);
         verify(dataListenerMock, times(2)).onScrapedData(argument.capture());
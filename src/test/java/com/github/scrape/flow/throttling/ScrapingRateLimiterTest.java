@@ -22,6 +22,7 @@ import org.junit.Test;
 import java.time.LocalDateTime;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -46,6 +47,18 @@ public class ScrapingRateLimiterTest {
         assertTrue(limiter.incrementIfRequestWithinLimitAndGet(nowBase.plus(1500, TimeUnit.MILLISECONDS.toChronoUnit())));
     }
 
+    @Test
+    public void nextRequestAllowedTimeMovesAfterEachPermittedRequest() {
+
+        ScrapingRateLimiter limiter = new ScrapingRateLimiterImpl(2, TimeUnit.SECONDS, nowBase);
+
+        assertEquals(nowBase, limiter.getNextRequestAllowedTime());
+        assertTrue(limiter.incrementIfRequestWithinLimitAndGet(nowBase));
+        assertEquals(nowBase.plus(500, TimeUnit.MILLISECONDS.toChronoUnit()), limiter.getNextRequestAllowedTime());
+        assertFalse(limiter.incrementIfRequestWithinLimitAndGet(nowBase.plus(100, TimeUnit.MILLISECONDS.toChronoUnit())));
+        assertEquals(nowBase.plus(500, TimeUnit.MILLISECONDS.toChronoUnit()), limiter.getNextRequestAllowedTime());
+    }
+
     // just for exploring the log outputs
     @Ignore
     @Test